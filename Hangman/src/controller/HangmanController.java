@@ -2,36 +2,52 @@ package controller;
 
 import apptemplate.AppTemplate;
 import data.GameData;
+import data.GameDataFile;
+import data.PrefetchingWordSupplier;
+import engine.GameListener;
+import engine.HangmanEngine;
 import gui.Workspace;
-import javafx.animation.AnimationTimer;
+import javafx.event.EventHandler;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
+import javafx.stage.FileChooser.ExtensionFilter;
+import javafx.stage.Window;
+import journal.GameJournal;
 import propertymanager.PropertyManager;
 import ui.AppMessageDialogSingleton;
+import ui.YesNoCancelDialogSingleton;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.URL;
 import java.nio.file.Path;
 
 import static settings.AppPropertyType.*;
+import static settings.InitializationParameters.APP_WORKDIR_PATH;
 
 /**
  * @author Ritwik Banerjee
  */
 public class HangmanController implements FileController {
 
-    private AppTemplate appTemplate; // shared reference to the application
-    private GameData    gamedata;    // shared reference to the game being played, loaded or saved
-    private Text[]      progress;    // reference to the text area for the word
-    private boolean     success;     // whether or not player was successful
-    private int         discovered;  // the number of letters already discovered
-    private Button      gameButton;  // shared reference to the "start game" button
-    private Label       remains;     // dynamically updated label that indicates the number of remaining guesses
-    private boolean     gameover;    // whether or not the current game is already over
-    private boolean     savable;
-    private Path        workFile;
+    private AppTemplate             appTemplate;  // shared reference to the application
+    private GameData                gamedata;     // shared reference to the game being played, loaded or saved
+    private HangmanEngine           engine;       // the rules, applied to the game being played
+    private PrefetchingWordSupplier wordSupplier; // target words for the games to come, prepared in the background
+    private GameListener            journal;      // records every game played, or ignores them if it cannot be opened
+    private AutosaveService         autosave;     // saves the game to the work file after every guess, in the background
+    private EventHandler<KeyEvent>  keyHandler;   // the one handler for the player's guesses, registered once per game
+    private Text[]                  progress;     // reference to the text area for the word
+    private Button                  gameButton;   // shared reference to the "start game" button
+    private Label                   remains;      // dynamically updated label that indicates the number of remaining guesses
+    private boolean                 gameover;     // whether or not the current game is already over
+    private boolean                 savable;
+    private LoadTask<GameData>      loading;      // the game being loaded in the background, if one is
 
     public HangmanController(AppTemplate appTemplate, Button gameButton) {
         this(appTemplate);
@@ -40,6 +56,15 @@ public class HangmanController implements FileController {
 
     public HangmanController(AppTemplate appTemplate) {
         this.appTemplate = appTemplate;
+        this.wordSupplier = new PrefetchingWordSupplier();
+        this.keyHandler = this::handleKeyTyped;
+        this.autosave = new AutosaveService(appTemplate.getFileComponent());
+        try {
+            this.journal = GameJournal.getJournal();
+        } catch (IOException e) {
+            e.printStackTrace();
+            this.journal = GameListener.NONE;
+        }
     }
 
     public void enableGameButton() {
@@ -50,28 +75,41 @@ public class HangmanController implements FileController {
         gameButton.setDisable(false);
     }
 
+    public void setGameButton(Button gameButton) {
+        this.gameButton = gameButton;
+    }
+
     public void start() {
-        gamedata = new GameData(appTemplate);
+        // the last game's pending autosave carries its own target, so it is left to finish in the background
+        gamedata = wordSupplier.newGame(appTemplate);
+        engine = new HangmanEngine(gamedata, journal);
+        beginGame();
+    }
+
+    /** Sets up the workspace for the game held by the engine, showing whatever has been guessed of it already. */
+    private void beginGame() {
         gameover = false;
-        success = false;
         savable = true;
-        discovered = 0;
         Workspace gameWorkspace = (Workspace) appTemplate.getWorkspaceComponent();
         appTemplate.getGUI().updateWorkspaceToolbar(savable);
         HBox remainingGuessBox = gameWorkspace.getRemainingGuessBox();
         HBox guessedLetters    = (HBox) gameWorkspace.getGameTextsPane().getChildren().get(1);
 
-        remains = new Label(Integer.toString(GameData.TOTAL_NUMBER_OF_GUESSES_ALLOWED));
+        remains = new Label(Integer.toString(engine.getRemainingGuesses()));
         remainingGuessBox.getChildren().addAll(new Label("Remaining Guesses: "), remains);
         initWordGraphics(guessedLetters);
-        play();
+        if (engine.isOver())
+            end();
+        else
+            play();
     }
 
     private void end() {
-        System.out.println(success ? "You win!" : "Ah, close but not quite there. The word was \"" + gamedata.getTargetWord() + "\".");
+        System.out.println(engine.isWon() ? "You win!" : "Ah, close but not quite there. The word was \"" + gamedata.getTargetWord() + "\".");
         appTemplate.getGUI().getPrimaryScene().setOnKeyTyped(null);
         gameover = true;
-        gameButton.setDisable(true);
+        if (gameButton != null)
+            gameButton.setDisable(true);
         savable = false; // cannot save a game that is already over
         appTemplate.getGUI().updateWorkspaceToolbar(savable);
 
@@ -79,52 +117,44 @@ public class HangmanController implements FileController {
 
     private void initWordGraphics(HBox guessedLetters) {
         char[] targetword = gamedata.getTargetWord().toCharArray();
+        long   revealed   = gamedata.getRevealedPositions();
         progress = new Text[targetword.length];
         for (int i = 0; i < progress.length; i++) {
             progress[i] = new Text(Character.toString(targetword[i]));
-            progress[i].setVisible(false);
+            progress[i].setVisible((revealed & (1L << i)) != 0);
         }
         guessedLetters.getChildren().addAll(progress);
     }
 
     public void play() {
-        AnimationTimer timer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                appTemplate.getGUI().getPrimaryScene().setOnKeyTyped((KeyEvent event) -> {
-                    char guess = event.getCharacter().charAt(0);
-                    if (!alreadyGuessed(guess)) {
-                        boolean goodguess = false;
-                        for (int i = 0; i < progress.length; i++) {
-                            if (gamedata.getTargetWord().charAt(i) == guess) {
-                                progress[i].setVisible(true);
-                                gamedata.addGoodGuess(guess);
-                                goodguess = true;
-                                discovered++;
-                            }
-                        }
-                        if (!goodguess)
-                            gamedata.addBadGuess(guess);
-
-                        success = (discovered == progress.length);
-                        remains.setText(Integer.toString(gamedata.getRemainingGuesses()));
-                    }
-                });
-                if (gamedata.getRemainingGuesses() <= 0 || success)
-                    stop();
-            }
-
-            @Override
-            public void stop() {
-                super.stop();
-                end();
-            }
-        };
-        timer.start();
+        appTemplate.getGUI().getPrimaryScene().setOnKeyTyped(keyHandler);
     }
 
-    private boolean alreadyGuessed(char c) {
-        return gamedata.getGoodGuesses().contains(c) || gamedata.getBadGuesses().contains(c);
+    /**
+     * Responds to a single key typed by the player. The guess is resolved by the engine as soon as it comes in, and only
+     * the parts of the display it changes are updated, so nothing runs between key strokes. If the game has been saved,
+     * a snapshot of it is handed to the autosave, which writes it without holding up the next key stroke.
+     *
+     * @param event the key event carrying the player's guess
+     */
+    private void handleKeyTyped(KeyEvent event) {
+        char guess = event.getCharacter().charAt(0);
+        switch (engine.guess(guess)) {
+            case GOOD:
+                for (long positions = engine.getLastRevealed(); positions != 0L; positions &= positions - 1)
+                    progress[Long.numberOfTrailingZeros(positions)].setVisible(true);
+                break;
+            case BAD:
+                remains.setText(Integer.toString(engine.getRemainingGuesses()));
+                break;
+            default:
+                return;
+        }
+        Path workFile = gamedata.getWorkFile(); // only ever this game's own file, so no other game is overwritten
+        if (workFile != null)
+            autosave.submit(gamedata.snapshot(), workFile);
+        if (engine.isOver())
+            end();
     }
     
     @Override
@@ -132,6 +162,8 @@ public class HangmanController implements FileController {
         AppMessageDialogSingleton messageDialog   = AppMessageDialogSingleton.getSingleton();
         PropertyManager           propertyManager = PropertyManager.getManager();
         boolean                   makenew         = true;
+        if (loading != null)
+            loading.cancel(); // a new game takes the place of the one being loaded
         if (savable)
             try {
                 makenew = promptToSave();
@@ -142,7 +174,6 @@ public class HangmanController implements FileController {
             appTemplate.getDataComponent().reset();                // reset the data (should be reflected in GUI)
             appTemplate.getWorkspaceComponent().reloadWorkspace(); // load data into workspace
             ensureActivatedWorkspace();                            // ensure workspace is activated
-            workFile = null;                                       // new workspace has never been saved to a file
 
             Workspace gameWorkspace = (Workspace) appTemplate.getWorkspaceComponent();
             gameWorkspace.reinitialize();
@@ -161,22 +192,103 @@ public class HangmanController implements FileController {
     
     @Override
     public void handleSaveRequest() throws IOException {
-
+        PropertyManager propertyManager = PropertyManager.getManager();
+        try {
+            if (gamedata.getWorkFile() != null)
+                save(gamedata.getWorkFile());
+            else {
+                File selectedFile = chooseWorkFile(propertyManager.getPropertyValue(SAVE_WORK_TITLE), true);
+                if (selectedFile != null)
+                    save(selectedFile.toPath());
+            }
+        } catch (IOException ioe) {
+            AppMessageDialogSingleton dialog = AppMessageDialogSingleton.getSingleton();
+            dialog.show(propertyManager.getPropertyValue(SAVE_ERROR_TITLE), propertyManager.getPropertyValue(SAVE_ERROR_MESSAGE));
+        }
     }
 
+    /**
+     * Loads a game the player picks. The file is read on a background thread, with its progress shown in the toolbar,
+     * and the game in the workspace carries on untouched until the loaded game replaces it in one step. Asking to load
+     * again while a load is under way cancels that load instead.
+     */
     @Override
     public void handleLoadRequest() {
+        AppMessageDialogSingleton messageDialog   = AppMessageDialogSingleton.getSingleton();
+        PropertyManager           propertyManager = PropertyManager.getManager();
+        if (loading != null) {
+            loading.cancel();
+            return;
+        }
+        try {
+            if (savable && !promptToSave())
+                return;
+            File selectedFile = chooseWorkFile(propertyManager.getPropertyValue(LOAD_WORK_TITLE), false);
+            if (selectedFile == null)
+                return;
+
+            LoadTask<GameData> task = new LoadTask<>(appTemplate.getFileComponent(),
+                                                     () -> new GameData(appTemplate, (String) null),
+                                                     selectedFile.toPath());
+            task.setOnSucceeded(event -> {
+                finishLoading();
+                show(task.getValue(), task.getFile());
+                messageDialog.show(propertyManager.getPropertyValue(LOAD_COMPLETED_TITLE),
+                                   propertyManager.getPropertyValue(LOAD_COMPLETED_MESSAGE));
+            });
+            task.setOnFailed(event -> {
+                finishLoading();
+                messageDialog.show(propertyManager.getPropertyValue(LOAD_ERROR_TITLE),
+                                   propertyManager.getPropertyValue(LOAD_ERROR_MESSAGE));
+            });
+            task.setOnCancelled(event -> finishLoading());
+            loading = task;
+            appTemplate.getGUI().showProgress(task);
+            task.start();
+        } catch (IOException ioe) {
+            messageDialog.show(propertyManager.getPropertyValue(LOAD_ERROR_TITLE), propertyManager.getPropertyValue(LOAD_ERROR_MESSAGE));
+        }
+    }
 
+    private void finishLoading() {
+        loading = null;
+        appTemplate.getGUI().hideProgress();
     }
-    
+
+    /**
+     * Replaces whatever is in the workspace with a loaded game, and picks the player's word sequence up again from
+     * the word after the loaded one.
+     *
+     * @param loaded the loaded game
+     * @param from   the file it was loaded from
+     */
+    private void show(GameData loaded, Path from) {
+        ensureActivatedWorkspace();
+        Workspace gameWorkspace = (Workspace) appTemplate.getWorkspaceComponent();
+        gameWorkspace.reinitialize();
+        enableGameButton();
+
+        gamedata = loaded.setWorkFile(from);
+        engine = new HangmanEngine(gamedata, journal);
+        if (gamedata.getWordIndex() >= 0)
+            wordSupplier.resume(gamedata.getSequenceSeed(), gamedata.getSequencePosition() + 1);
+        beginGame();
+    }
+
     @Override
     public void handleExitRequest() {
         try {
             boolean exit = true;
             if (savable)
                 exit = promptToSave();
-            if (exit)
+            if (exit) {
+                if (loading != null)
+                    loading.cancel();
+                autosave.close();
+                if (journal instanceof GameJournal)
+                    ((GameJournal) journal).close();
                 System.exit(0);
+            }
         } catch (IOException ioe) {
             AppMessageDialogSingleton dialog = AppMessageDialogSingleton.getSingleton();
             PropertyManager           props  = PropertyManager.getManager();
@@ -188,8 +300,56 @@ public class HangmanController implements FileController {
         appTemplate.getWorkspaceComponent().activateWorkspace(appTemplate.getGUI().getAppPane());
     }
     
+    /**
+     * Asks the player whether to save the game in progress before it is replaced, and saves it if so.
+     *
+     * @return {@code false} if the player cancels, and {@code true} otherwise
+     */
     private boolean promptToSave() throws IOException {
-        return false; // dummy placeholder
+        PropertyManager            propertyManager   = PropertyManager.getManager();
+        YesNoCancelDialogSingleton yesNoCancelDialog = YesNoCancelDialogSingleton.getSingleton();
+
+        yesNoCancelDialog.show(propertyManager.getPropertyValue(SAVE_UNSAVED_WORK_TITLE),
+                               propertyManager.getPropertyValue(SAVE_UNSAVED_WORK_MESSAGE));
+
+        if (yesNoCancelDialog.getSelection().equals(YesNoCancelDialogSingleton.YES)) {
+            if (gamedata.getWorkFile() != null)
+                save(gamedata.getWorkFile());
+            else {
+                File selectedFile = chooseWorkFile(propertyManager.getPropertyValue(SAVE_WORK_TITLE), true);
+                if (selectedFile != null)
+                    save(selectedFile.toPath());
+            }
+        }
+
+        return !yesNoCancelDialog.getSelection().equals(YesNoCancelDialogSingleton.CANCEL);
+    }
+
+    /**
+     * Lets the player pick a game file in the work folder.
+     *
+     * @param title the title of the file chooser
+     * @param save  {@code true} to pick a file to save to, and {@code false} to pick one to load from
+     * @return the file picked, or {@code null} if the player cancelled
+     */
+    private File chooseWorkFile(String title, boolean save) throws FileNotFoundException {
+        PropertyManager propertyManager = PropertyManager.getManager();
+        FileChooser     fileChooser     = new FileChooser();
+        URL             workDirURL      = AppTemplate.class.getClassLoader().getResource(APP_WORKDIR_PATH.getParameter());
+        if (workDirURL == null)
+            throw new FileNotFoundException("Work folder not found under resources.");
+
+        fileChooser.setInitialDirectory(new File(workDirURL.getFile()));
+        fileChooser.setTitle(title);
+        String description = propertyManager.getPropertyValue(WORK_FILE_EXT_DESC);
+        String extension   = propertyManager.getPropertyValue(WORK_FILE_EXT);
+        fileChooser.getExtensionFilters().addAll(new ExtensionFilter(String.format("%s (*.%s)", description, extension),
+                                                                     String.format("*.%s", extension)),
+                                                 new ExtensionFilter(String.format("%s (*.%s)", description,
+                                                                                   GameDataFile.BINARY_EXTENSION),
+                                                                     String.format("*.%s", GameDataFile.BINARY_EXTENSION)));
+        Window window = appTemplate.getGUI().getWindow();
+        return save ? fileChooser.showSaveDialog(window) : fileChooser.showOpenDialog(window);
     }
 
     /**
@@ -200,6 +360,11 @@ public class HangmanController implements FileController {
      * @throws IOException
      */
     private void save(Path target) throws IOException {
+        AutosaveService.writeAtomically(appTemplate.getFileComponent(), gamedata, target);
+        gamedata.setWorkFile(target);
 
+        AppMessageDialogSingleton dialog = AppMessageDialogSingleton.getSingleton();
+        PropertyManager           props  = PropertyManager.getManager();
+        dialog.show(props.getPropertyValue(SAVE_COMPLETED_TITLE), props.getPropertyValue(SAVE_COMPLETED_MESSAGE));
     }
 }
@@ -0,0 +1,257 @@
+package data;
+
+import components.AppDataComponent;
+import components.AppFileComponent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Saves and loads games in a compact binary format, for when games are saved in bulk. A file starts with a
+ * {@value #HEADER_BYTES}-byte header:
+ * <pre>
+ *     int  magic number, "HGSV"
+ *     byte format version
+ *     byte flags, reserved and always zero
+ *     int  the checksum of the dictionary the games were saved against
+ * </pre>
+ * followed by any number of games back to back. The target word is stored as its position in the {@link Dictionary},
+ * and the guesses as bitmasks, so every game takes the same {@value #RECORD_BYTES} bytes:
+ * <pre>
+ *     int  word index
+ *     int  good guesses, with bit k set for the letter 'a' + k, and bits 26 and up for {@link #OTHER_GUESSES}
+ *     int  bad guesses, in the same form
+ *     long sequence seed
+ *     int  sequence position
+ * </pre>
+ * Files are read through a memory-mapped {@link FileChannel}. Since a word index only means something in the
+ * dictionary it was taken from, a file saved against any other dictionary than the one in use is refused rather than
+ * loaded with the wrong words. Only games whose target word is in the dictionary, and whose guesses are all letters or
+ * one of {@link #OTHER_GUESSES}, can be saved in this format.
+ *
+ * @author Ritwik Banerjee
+ */
+public class BinaryGameDataFile implements AppFileComponent {
+
+    /** The characters other than 'a' to 'z' that can be recorded as guesses, in the order of their bits. */
+    public static final String OTHER_GUESSES = "'\"/-.";
+    public static final int    HEADER_BYTES  = 10;
+    public static final int    RECORD_BYTES  = 24;
+
+    static final int  MAGIC          = 0x48475356; // "HGSV"
+    static final byte FORMAT_VERSION = 3;
+
+    private static final int LETTERS     = 26;
+    private static final int LETTER_MASK = (1 << LETTERS) - 1;
+    private static final int BATCH_GAMES = 2048;
+
+    @Override
+    public void saveData(AppDataComponent data, Path to) throws IOException {
+        Dictionary dictionary = Dictionary.getDictionary();
+        ByteBuffer file       = ByteBuffer.allocate(HEADER_BYTES + RECORD_BYTES);
+        writeHeader(file, dictionary);
+        encode((GameData) data, file, dictionary);
+        try (FileChannel channel = FileChannel.open(to, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, file);
+        }
+    }
+
+    @Override
+    public void loadData(AppDataComponent data, Path from) throws IOException {
+        try (FileChannel channel = FileChannel.open(from, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + RECORD_BYTES)
+                throw new IOException(from + " does not hold a single saved game.");
+            Dictionary       dictionary = Dictionary.getDictionary();
+            MappedByteBuffer file       = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + RECORD_BYTES);
+            readHeader(file, from, dictionary);
+            decode(file, 0L, (GameData) data, dictionary);
+        }
+    }
+
+    /**
+     * Loads a game as {@link #loadData(AppDataComponent, Path)} does. A file holds a single record, so the load is
+     * reported as done once the record is decoded, and an interrupt is only noticed before the file is mapped.
+     */
+    @Override
+    public void loadData(AppDataComponent data, Path from, DoubleConsumer progress) throws IOException {
+        if (Thread.interrupted())
+            throw new InterruptedIOException("Loading was interrupted.");
+        loadData(data, from);
+        progress.accept(1);
+    }
+
+    /** This format has nothing to export to. */
+    @Override
+    public void exportData(AppDataComponent data, Path filePath) throws IOException { }
+
+    /**
+     * Saves any number of games to a single file.
+     *
+     * @param games the games to save
+     * @param to    the file to save them to
+     * @return the number of games saved
+     */
+    public static int saveAll(Iterable<GameData> games, Path to) throws IOException {
+        Dictionary dictionary = Dictionary.getDictionary();
+        int        count      = 0;
+        ByteBuffer batch      = ByteBuffer.allocate(HEADER_BYTES + BATCH_GAMES * RECORD_BYTES);
+        writeHeader(batch, dictionary);
+        try (FileChannel channel = FileChannel.open(to, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (GameData game : games) {
+                if (batch.remaining() < RECORD_BYTES)
+                    writeFully(channel, batch);
+                encode(game, batch, dictionary);
+                count++;
+            }
+            writeFully(channel, batch);
+        }
+        return count;
+    }
+
+    /**
+     * Loads every game in a file.
+     *
+     * @param from the file to load from
+     * @param sink receives each game as it is loaded; the games are not attached to any application
+     * @return the number of games loaded
+     */
+    public static int loadAll(Path from, Consumer<GameData> sink) throws IOException {
+        Dictionary dictionary = Dictionary.getDictionary();
+        try (FileChannel channel = FileChannel.open(from, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || (size - HEADER_BYTES) % RECORD_BYTES != 0)
+                throw new IOException(from + " does not hold a whole number of saved games.");
+            readHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES), from, dictionary);
+
+            long perMapping = (Integer.MAX_VALUE / RECORD_BYTES) * (long) RECORD_BYTES;
+            int  count      = 0;
+            for (long start = HEADER_BYTES; start < size; start += perMapping) {
+                MappedByteBuffer games = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                                     Math.min(perMapping, size - start));
+                while (games.hasRemaining()) {
+                    sink.accept(decode(games, start, null, dictionary));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining())
+            channel.write(batch);
+        batch.clear();
+    }
+
+    private static void writeHeader(ByteBuffer out, Dictionary dictionary) {
+        out.putInt(MAGIC)
+           .put(FORMAT_VERSION)
+           .put((byte) 0)
+           .putInt(dictionary.getChecksum());
+    }
+
+    private static void readHeader(ByteBuffer in, Path from, Dictionary dictionary) throws IOException {
+        if (in.getInt() != MAGIC)
+            throw new IOException(from + " does not hold saved games.");
+        byte version = in.get();
+        if (version != FORMAT_VERSION)
+            throw new IOException(String.format("%s is version %d of the format; expected %d.",
+                                                from, version, FORMAT_VERSION));
+        int flags = in.get();
+        if (flags != 0)
+            throw new IOException(String.format("%s has unknown flags %x.", from, flags));
+        if (in.getInt() != dictionary.getChecksum())
+            throw new IOException(from + " was saved against a different dictionary.");
+    }
+
+    private static void encode(GameData game, ByteBuffer out, Dictionary dictionary) throws IOException {
+        int index = game.getWordIndex();
+        if (index < 0 || index >= dictionary.size() || !dictionary.matches(index, game.getTargetWord()))
+            throw new IOException(String.format("\"%s\" is not in the dictionary, so cannot be saved in binary.",
+                                                game.getTargetWord()));
+        if (game.getSequencePosition() < 0 || game.getSequencePosition() > Integer.MAX_VALUE)
+            throw new IOException("The word sequence is too far along to be saved in binary.");
+        out.putInt(index)
+           .putInt(guessMask(game.getGoodGuessMask(), game.getGoodGuesses()))
+           .putInt(guessMask(game.getBadGuessMask(), game.getBadGuesses()))
+           .putLong(game.getSequenceSeed())
+           .putInt((int) game.getSequencePosition());
+    }
+
+    /**
+     * @param in   the records, positioned at the one to decode
+     * @param base the position in the file of the start of {@code in}, for error messages
+     */
+    private static GameData decode(ByteBuffer in, long base, GameData into, Dictionary dictionary) throws IOException {
+        long start    = base + in.position();
+        int  index    = in.getInt();
+        int  good     = in.getInt();
+        int  bad      = in.getInt();
+        long seed     = in.getLong();
+        int  position = in.getInt();
+
+        if (index < 0 || index >= dictionary.size())
+            throw new IOException(String.format("Saved game at byte %d has unknown word %d.", start, index));
+        if ((good & bad) != 0 || (good | bad) >>> (LETTERS + OTHER_GUESSES.length()) != 0)
+            throw new IOException(String.format("Saved game at byte %d has malformed guesses.", start));
+
+        int letters = dictionary.letterMaskOf(index);
+        if ((good & LETTER_MASK & ~letters) != 0 || (bad & letters) != 0)
+            throw new IOException(String.format("Saved game at byte %d has guesses that contradict its word.", start));
+
+        String   word = dictionary.wordAt(index);
+        GameData game = into == null ? new GameData(word) : into.setTargetWord(word);
+        game.setWordSequence(index, seed, position)
+            .setGameId(0L)
+            .setGoodGuesses(guessSet(good))
+            .setBadGuesses(guessSet(bad));
+        for (int i = 0; i < OTHER_GUESSES.length(); i++) {
+            int     bit    = 1 << (LETTERS + i);
+            boolean inWord = game.positionsOf(OTHER_GUESSES.charAt(i)) != 0L;
+            if (((good & bit) != 0 && !inWord) || ((bad & bit) != 0 && inWord))
+                throw new IOException(String.format("Saved game at byte %d has guesses that contradict its word.",
+                                                    start));
+        }
+        return game;
+    }
+
+    /**
+     * @param letters the letters among the guesses, with bit k set for the letter 'a' + k
+     * @param guesses all the guesses
+     */
+    private static int guessMask(int letters, Set<Character> guesses) throws IOException {
+        if (guesses.size() == Integer.bitCount(letters))
+            return letters; // nothing but letters, which is nearly always the case
+        int mask = 0;
+        for (char c : guesses) {
+            int bit = Dictionary.letterMask(c);
+            if (bit == 0) {
+                int other = OTHER_GUESSES.indexOf(c);
+                if (other < 0)
+                    throw new IOException(String.format("'%c' cannot be saved as a guess in binary.", c));
+                bit = 1 << (LETTERS + other);
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    private static GuessSet guessSet(int mask) {
+        GuessSet guesses = new GuessSet(mask);
+        for (int others = mask >>> LETTERS, i = 0; others != 0; others >>>= 1, i++)
+            if ((others & 1) != 0)
+                guesses.add(OTHER_GUESSES.charAt(i));
+        return guesses;
+    }
+}
@@ -0,0 +1,453 @@
+package data;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The process-wide dictionary of words from which target words are drawn. All the words are packed back to back into
+ * a single byte arena, with a table of offsets marking where each one starts, so the entire dictionary costs two
+ * arrays worth of heap regardless of how many games are being played. No {@link String} is created for a word until
+ * it is actually asked for.
+ * <p>
+ * Every character of a word takes exactly one byte of the arena, so that the length of a word, and the position of
+ * each of its letters, are the same counted in bytes as in characters. Only words made up entirely of ASCII characters
+ * are therefore kept; any other word in a word list, such as one with an accented letter, is left out when the list
+ * is loaded or compiled.
+ * <p>
+ * A word list of any size can be used. The first time a list is asked for, it is memory-mapped and read in a single
+ * pass that packs the words and discovers how many there are; the result is cached, so every later request for the
+ * same list is served from memory.
+ * <p>
+ * A word list may also be a dictionary compiled ahead of time by {@link DictionaryCompiler}, which is the preferred
+ * form for the list that ships with the application. A compiled dictionary is already laid out exactly as it is held
+ * in memory, so it is simply mapped and used in place, with no parsing at all.
+ *
+ * @author Ritwik Banerjee
+ */
+public final class Dictionary {
+
+    public static final String WORDS_RESOURCE          = "words/words.txt";
+    public static final String COMPILED_WORDS_RESOURCE = "words/words.dict";
+
+    // Layout of a compiled dictionary: a fixed header, followed by the length histogram, the word offsets, the letter
+    // masks, and finally the words themselves. The checksum covers everything after the header. The header ends with
+    // the checksum and size of the word list the dictionary was compiled from, so a stale dictionary can be told apart.
+    static final int MAGIC          = 0x48444943; // "HDIC"
+    static final int FORMAT_VERSION = 2;
+    static final int SOURCE_AT      = 6 * Integer.BYTES; // magic, version, checksum, size, arena length, max length
+    static final int HEADER_BYTES   = SOURCE_AT + Integer.BYTES + Long.BYTES; // then the source's checksum and size
+
+    private static final Map<Path, Dictionary> dictionaries = new ConcurrentHashMap<>(); // keyed by word list
+
+    private static volatile Path defaultWordList; // found once, since it takes a read of the plain word list
+
+    private final ByteBuffer words;        // every word, back to back, with no separators
+    private final IntBuffer  offsets;      // offsets[i] is where word i starts; offsets[size] is the end of the arena
+    private final IntBuffer  letterMasks;  // letterMasks[i] has bit k set if word i contains the letter 'a' + k
+    private final IntBuffer  lengthCounts; // lengthCounts[n] is the number of words with exactly n letters
+    private final int        size;         // the number of words in the dictionary
+
+    private volatile long  checksum = -1L; // the checksum, as an unsigned int, or -1 until it is first asked for
+    private volatile int[] byLength;       // every word's position, grouped by length, or null until first asked for
+
+    private Dictionary(ByteBuffer words, IntBuffer offsets, IntBuffer letterMasks, IntBuffer lengthCounts) {
+        this.words = words;
+        this.offsets = offsets;
+        this.letterMasks = letterMasks;
+        this.lengthCounts = lengthCounts;
+        this.size = offsets.limit() - 1;
+    }
+
+    /**
+     * Returns the dictionary shared by the entire application, loading it the first time it is asked for.
+     *
+     * @return the shared dictionary
+     * @throws IOException if the word list could not be read
+     */
+    public static Dictionary getDictionary() throws IOException {
+        return forWordList(defaultWordList());
+    }
+
+    /**
+     * Returns the dictionary for the given word list, loading it the first time it is asked for.
+     *
+     * @param wordList a newline-delimited word list
+     * @return the dictionary of the words in the list
+     * @throws IOException if the word list could not be read
+     */
+    public static Dictionary forWordList(Path wordList) throws IOException {
+        Dictionary dictionary = dictionaries.get(wordList.toAbsolutePath().normalize());
+        return dictionary != null ? dictionary : load(wordList, null, null);
+    }
+
+    /**
+     * Picks a word uniformly at random from the word list that ships with the application.
+     *
+     * @see #randomWord(Path, Random)
+     */
+    public static String randomWord(Random random) throws IOException {
+        return randomWord(defaultWordList(), random);
+    }
+
+    /**
+     * Picks a word uniformly at random from the given word list. If the list has not been seen before, the word is
+     * chosen by reservoir sampling during the same pass that loads the list, so no separate pass is needed to count the
+     * words first.
+     *
+     * @param wordList a newline-delimited word list
+     * @param random   the source of randomness for the pick
+     * @return a word from the list
+     * @throws IOException if the word list could not be read
+     */
+    public static String randomWord(Path wordList, Random random) throws IOException {
+        Dictionary dictionary = dictionaries.get(wordList.toAbsolutePath().normalize());
+        if (dictionary != null)
+            return dictionary.wordAt(random.nextInt(dictionary.size()));
+
+        int[] sampled = new int[1];
+        dictionary = load(wordList, random, sampled);
+        return dictionary.wordAt(sampled[0]);
+    }
+
+    private static Path defaultWordList() throws IOException {
+        Path wordList = defaultWordList;
+        if (wordList == null)
+            defaultWordList = wordList = findDefaultWordList();
+        return wordList;
+    }
+
+    /**
+     * Finds the word list that ships with the application: the compiled dictionary, as long as it was compiled from the
+     * plain word list as it is now, and otherwise the plain word list itself, so that an edit to the plain list is
+     * never masked by a dictionary compiled before it.
+     */
+    private static Path findDefaultWordList() throws IOException {
+        Path compiled = resource(COMPILED_WORDS_RESOURCE);
+        Path plain    = resource(WORDS_RESOURCE);
+        if (compiled != null && (plain == null || isCompiledFrom(compiled, plain)))
+            return compiled;
+        if (plain == null)
+            throw new IOException(String.format("Word list \"%s\" not found under resources.", WORDS_RESOURCE));
+        return plain;
+    }
+
+    private static Path resource(String name) throws IOException {
+        URL url = Dictionary.class.getClassLoader().getResource(name);
+        try {
+            return url == null ? null : Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param compiled a compiled dictionary
+     * @param wordList a plain word list
+     * @return {@code true} if the dictionary is of the current format, and was compiled from exactly the given list
+     */
+    static boolean isCompiledFrom(Path compiled, Path wordList) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+            for (int n = 0; n >= 0 && header.hasRemaining(); )
+                n = channel.read(header);
+        }
+        return !header.hasRemaining()
+               && header.getInt(0) == MAGIC
+               && header.getInt(Integer.BYTES) == FORMAT_VERSION
+               && header.getLong(SOURCE_AT + Integer.BYTES) == Files.size(wordList)
+               && header.getInt(SOURCE_AT) == sourceChecksum(wordList);
+    }
+
+    /**
+     * @param wordList a plain word list
+     * @return a CRC32 of the entire contents of the list, as recorded in a dictionary compiled from it
+     */
+    static int sourceChecksum(Path wordList) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(wordList, StandardOpenOption.READ)) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Loads a word list and caches the result. A compiled dictionary is used in place. A plain word list is read in a
+     * single pass over its mapped contents, packing the words into the arena as they are found. If a sampler is given,
+     * one word is also picked (by reservoir sampling, in the case of a plain list), and its index is written into
+     * {@code sampled[0]}.
+     */
+    private static synchronized Dictionary load(Path wordList, Random sampler, int[] sampled) throws IOException {
+        Path key = wordList.toAbsolutePath().normalize();
+        Dictionary cached = dictionaries.get(key);
+        if (cached != null) {
+            if (sampler != null)
+                sampled[0] = sampler.nextInt(cached.size());
+            return cached;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(wordList, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() >= Integer.BYTES && buffer.getInt(0) == MAGIC) {
+            Dictionary dictionary = openCompiled(wordList, buffer);
+            if (sampler != null)
+                sampled[0] = sampler.nextInt(dictionary.size());
+            dictionaries.put(key, dictionary);
+            return dictionary;
+        }
+
+        int     limit   = buffer.limit();
+        byte[]  arena   = new byte[limit]; // never more than the file itself, and trimmed once the pass is done
+        int[]   offsets = new int[Math.max(16, limit / 8)];
+        int     size    = 0;
+        int     length  = 0;
+        int     start   = 0;     // where the word being read starts in the arena
+        boolean inWord  = false;
+        boolean ascii   = true;  // whether the word being read is all ASCII so far
+        for (int i = 0; i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n'; // as if the last word were followed by a newline
+            if (b == '\n' || b == '\r') {
+                if (inWord && ascii) {
+                    if (size + 1 >= offsets.length)
+                        offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+                    offsets[size++] = start;
+                    if (sampler != null && sampler.nextInt(size) == 0)
+                        sampled[0] = size - 1;
+                } else if (inWord) {
+                    length = start; // take the word back out of the arena
+                }
+                inWord = false;
+                continue;
+            }
+            if (!inWord) {
+                start = length;
+                ascii = true;
+                inWord = true;
+            }
+            ascii &= b >= 0; // every byte of a multi-byte character has its top bit set
+            arena[length++] = b;
+        }
+        if (size == 0)
+            throw new IOException(String.format("Word list \"%s\" contains no words.", wordList));
+        offsets[size] = length;
+
+        arena = Arrays.copyOf(arena, length);
+        offsets = Arrays.copyOf(offsets, size + 1);
+
+        int[] masks        = new int[size];
+        int[] lengthCounts = new int[1];
+        for (int i = 0; i < size; i++) {
+            int wordLength = offsets[i + 1] - offsets[i];
+            if (wordLength >= lengthCounts.length)
+                lengthCounts = Arrays.copyOf(lengthCounts, wordLength + 1);
+            lengthCounts[wordLength]++;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++)
+                masks[i] |= letterMask((char) (arena[j] & 0xFF));
+        }
+
+        Dictionary dictionary = new Dictionary(ByteBuffer.wrap(arena), IntBuffer.wrap(offsets),
+                                               IntBuffer.wrap(masks), IntBuffer.wrap(lengthCounts));
+        dictionaries.put(key, dictionary);
+        return dictionary;
+    }
+
+    private static Dictionary openCompiled(Path source, ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES)
+            throw new IOException(String.format("Compiled dictionary \"%s\" is truncated.", source));
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != FORMAT_VERSION)
+            throw new IOException(String.format("Compiled dictionary \"%s\" has version %d, but version %d is required.",
+                                                source, version, FORMAT_VERSION));
+        int checksum    = buffer.getInt(2 * Integer.BYTES);
+        int size        = buffer.getInt(3 * Integer.BYTES);
+        int arenaLength = buffer.getInt(4 * Integer.BYTES);
+        int maxLength   = buffer.getInt(5 * Integer.BYTES);
+
+        int histogramAt = HEADER_BYTES;
+        int offsetsAt   = histogramAt + (maxLength + 1) * Integer.BYTES;
+        int masksAt     = offsetsAt + (size + 1) * Integer.BYTES;
+        int arenaAt     = masksAt + size * Integer.BYTES;
+        if (size <= 0 || maxLength < 0 || arenaLength < 0 || buffer.limit() != arenaAt + arenaLength)
+            throw new IOException(String.format("Compiled dictionary \"%s\" is truncated.", source));
+
+        CRC32      crc  = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_BYTES);
+        crc.update(body);
+        if ((int) crc.getValue() != checksum)
+            throw new IOException(String.format("Compiled dictionary \"%s\" is corrupt.", source));
+
+        return new Dictionary(slice(buffer, arenaAt, arenaLength),
+                              slice(buffer, offsetsAt, (size + 1) * Integer.BYTES).asIntBuffer(),
+                              slice(buffer, masksAt, size * Integer.BYTES).asIntBuffer(),
+                              slice(buffer, histogramAt, (maxLength + 1) * Integer.BYTES).asIntBuffer());
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int length) {
+        ByteBuffer section = buffer.duplicate();
+        section.position(from);
+        section.limit(from + length);
+        return section.slice();
+    }
+
+    /**
+     * @param c a character
+     * @return a mask with the single bit for the given letter set, or zero if the character is not a letter from 'a'
+     * to 'z'
+     */
+    public static int letterMask(char c) {
+        return c >= 'a' && c <= 'z' ? 1 << (c - 'a') : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Identifies the words in the dictionary and their order, so that anything which refers to words by their position,
+     * such as a saved game, can tell whether it was made against this dictionary. The checksum depends only on the words and
+     * their order, not on whether they were loaded from a plain word list or a compiled one, and is computed the first
+     * time it is asked for.
+     *
+     * @return a CRC32 of the words in the dictionary and of where each one starts
+     */
+    public int getChecksum() {
+        long value = checksum;
+        if (value < 0) {
+            CRC32 crc = new CRC32();
+            crc.update(words.duplicate());
+            ByteBuffer batch = ByteBuffer.allocate(1024 * Integer.BYTES);
+            for (int i = 0; i <= size; i++) {
+                if (!batch.hasRemaining()) {
+                    batch.flip();
+                    crc.update(batch);
+                    batch.clear();
+                }
+                batch.putInt(offsets.get(i));
+            }
+            batch.flip();
+            crc.update(batch);
+            checksum = value = crc.getValue(); // racing threads compute the same value, so either may store it
+        }
+        return (int) value;
+    }
+
+    /**
+     * @param index the position of the word in the dictionary
+     * @return the number of letters in the word
+     */
+    public int lengthOf(int index) {
+        checkIndex(index);
+        return offsets.get(index + 1) - offsets.get(index);
+    }
+
+    /**
+     * @param index the position of the word in the dictionary
+     * @return the set of letters in the word, with bit k set if the word contains the letter 'a' + k
+     */
+    public int letterMaskOf(int index) {
+        checkIndex(index);
+        return letterMasks.get(index);
+    }
+
+    /** @return the number of letters in the longest word in the dictionary */
+    public int maxLength() {
+        return lengthCounts.limit() - 1;
+    }
+
+    /**
+     * @param length a number of letters
+     * @return how many words in the dictionary have exactly that many letters
+     */
+    public int countOfLength(int length) {
+        return length >= 0 && length < lengthCounts.limit() ? lengthCounts.get(length) : 0;
+    }
+
+    /**
+     * Lists the words of the given length. The words of every length are grouped together the first time any length
+     * is asked for, in a single pass over the dictionary, so that later calls need not scan it at all.
+     *
+     * @param length a number of letters
+     * @return the positions in the dictionary of the words with exactly that many letters, in dictionary order, as a
+     * read-only buffer of {@link #countOfLength(int)} entries
+     */
+    public IntBuffer wordsOfLength(int length) {
+        int count = countOfLength(length);
+        if (count == 0)
+            return IntBuffer.allocate(0).asReadOnlyBuffer();
+        int[] grouped = byLength;
+        if (grouped == null)
+            byLength = grouped = groupByLength(); // racing threads build the same grouping, so either may store it
+        int start = 0;
+        for (int shorter = 0; shorter < length; shorter++)
+            start += lengthCounts.get(shorter);
+        return IntBuffer.wrap(grouped, start, count).slice().asReadOnlyBuffer();
+    }
+
+    private int[] groupByLength() {
+        int[] next = new int[lengthCounts.limit()]; // where the next word of each length goes
+        for (int length = 1; length < next.length; length++)
+            next[length] = next[length - 1] + lengthCounts.get(length - 1);
+        int[] grouped = new int[size];
+        for (int i = 0; i < size; i++)
+            grouped[next[lengthOf(i)]++] = i;
+        return grouped;
+    }
+
+    /**
+     * @param index    the position of the word in the dictionary
+     * @param position the position of the letter in the word
+     * @return the letter at the given position of the word
+     */
+    public char charAt(int index, int position) {
+        return (char) (words.get(offsets.get(index) + position) & 0xFF);
+    }
+
+    /**
+     * @param index the position of the word in the dictionary
+     * @return the word at the given position
+     */
+    public String wordAt(int index) {
+        byte[] bytes = new byte[lengthOf(index)];
+        int    start = offsets.get(index);
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = words.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index the position of a word in the dictionary
+     * @param word  a word
+     * @return {@code true} if the word at the given position is the given word
+     */
+    public boolean matches(int index, String word) {
+        if (word == null || lengthOf(index) != word.length())
+            return false;
+        int start = offsets.get(index);
+        for (int i = 0; i < word.length(); i++)
+            if ((words.get(start + i) & 0xFF) != word.charAt(i))
+                return false;
+        return true;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(String.format("No word at index %d in a dictionary of %d words.", index, size));
+    }
+}
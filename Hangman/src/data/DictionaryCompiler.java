@@ -0,0 +1,112 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An offline tool that compiles a newline-delimited word list into the binary dictionary format read by
+ * {@link Dictionary}. The words are lowercased, deduplicated and sorted, and the letter mask of every word and the
+ * histogram of word lengths are computed up front, so that the application never has to parse the word list itself.
+ * Words that are not entirely ASCII are left out, since the dictionary holds every character in a single byte. The
+ * checksum and size of the word list are recorded as well, so that {@link Dictionary} can tell when the compiled
+ * dictionary has fallen behind the list, and use the list instead; the dictionary that ships with the application
+ * must be compiled again whenever its word list changes.
+ * <p>
+ * Usage: {@code java data.DictionaryCompiler resources/words/words.txt resources/words/words.dict}
+ *
+ * @author Ritwik Banerjee
+ */
+public class DictionaryCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: DictionaryCompiler <word list> <compiled dictionary>");
+            System.exit(1);
+        }
+        int size = compile(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println(String.format("Compiled %d words into %s.", size, args[1]));
+    }
+
+    /**
+     * Compiles a word list into a binary dictionary.
+     *
+     * @param wordList the newline-delimited word list
+     * @param compiled the file to which the compiled dictionary is written
+     * @return the number of words in the compiled dictionary
+     * @throws IOException if the word list could not be read, or the compiled dictionary could not be written
+     */
+    public static int compile(Path wordList, Path compiled) throws IOException {
+        SortedSet<String> words = new TreeSet<>();
+        try (Stream<String> lines = Files.lines(wordList, StandardCharsets.UTF_8)) {
+            lines.map(line -> line.trim().toLowerCase(Locale.ROOT))
+                 .filter(word -> !word.isEmpty() && word.chars().allMatch(c -> c < 0x80))
+                 .forEach(words::add);
+        }
+        if (words.isEmpty())
+            throw new IOException(String.format("Word list \"%s\" contains no words.", wordList));
+
+        int size        = words.size();
+        int maxLength   = 0;
+        int arenaLength = 0;
+        for (String word : words) {
+            int length = word.getBytes(StandardCharsets.UTF_8).length;
+            maxLength = Math.max(maxLength, length);
+            arenaLength += length;
+        }
+
+        int[]  lengthCounts = new int[maxLength + 1];
+        int[]  offsets      = new int[size + 1];
+        int[]  masks        = new int[size];
+        byte[] arena        = new byte[arenaLength];
+        int    i            = 0;
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(bytes, 0, arena, offsets[i], bytes.length);
+            offsets[i + 1] = offsets[i] + bytes.length;
+            for (int j = 0; j < word.length(); j++)
+                masks[i] |= Dictionary.letterMask(word.charAt(j));
+            lengthCounts[bytes.length]++;
+            i++;
+        }
+
+        int        bodyBytes = (lengthCounts.length + offsets.length + masks.length) * Integer.BYTES + arena.length;
+        ByteBuffer buffer    = ByteBuffer.allocate(Dictionary.HEADER_BYTES + bodyBytes);
+        buffer.position(Dictionary.HEADER_BYTES);
+        buffer.asIntBuffer().put(lengthCounts).put(offsets).put(masks);
+        buffer.position(buffer.position() + (lengthCounts.length + offsets.length + masks.length) * Integer.BYTES);
+        buffer.put(arena);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), Dictionary.HEADER_BYTES, bodyBytes);
+        buffer.putInt(0, Dictionary.MAGIC)
+              .putInt(Integer.BYTES, Dictionary.FORMAT_VERSION)
+              .putInt(2 * Integer.BYTES, (int) crc.getValue())
+              .putInt(3 * Integer.BYTES, size)
+              .putInt(4 * Integer.BYTES, arenaLength)
+              .putInt(5 * Integer.BYTES, maxLength)
+              .putInt(Dictionary.SOURCE_AT, Dictionary.sourceChecksum(wordList))
+              .putLong(Dictionary.SOURCE_AT + Integer.BYTES, Files.size(wordList));
+        buffer.rewind();
+
+        Path partial = compiled.resolveSibling(compiled.getFileName() + ".partial");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(partial, compiled, StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+}
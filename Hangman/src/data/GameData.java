@@ -2,70 +2,219 @@ package data;
 
 import apptemplate.AppTemplate;
 import components.AppDataComponent;
-import controller.GameError;
-
-import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.HashSet;
-import java.util.Random;
+
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.stream.Stream;
 
 /**
  * @author Ritwik Banerjee
  */
 public class GameData implements AppDataComponent {
 
-    public static final  int TOTAL_NUMBER_OF_GUESSES_ALLOWED = 10;
-    private static final int TOTAL_NUMBER_OF_STORED_WORDS    = 330622;
+    public static final int TOTAL_NUMBER_OF_GUESSES_ALLOWED = 10;
+    public static final int MAX_TARGET_WORD_LENGTH          = Long.SIZE; // positions in the word are tracked in a long
 
     private String         targetWord;
-    private Set<Character> goodGuesses;
-    private Set<Character> badGuesses;
+    private GuessSet       goodGuesses;
+    private GuessSet       badGuesses;
     private int            remainingGuesses;
+    private int            wordIndex;        // position of the target word in the dictionary, or -1 if unknown
+    private long           sequenceSeed;     // seed of the word sequence the target word was drawn from
+    private long           sequencePosition; // position of the target word in that sequence
+    private long           gameId;           // identifies the game in the game journal, or 0 if it has not been journaled
+    private long[]         letterPositions;  // bit i of letterPositions[k] is set if the letter 'a' + k is at position i
+    private boolean        hasNonLetters;    // whether the target word contains anything other than 'a' to 'z'
+    private long           revealed;         // bit i is set once the letter at position i has been guessed
+    private Path           workFile;         // the file this game was saved to or loaded from, if any
     public  AppTemplate    appTemplate;
 
+    /**
+     * Creates a game that has no target word yet. Its word is set when a game is started or loaded, so the dictionary
+     * is not read while the application is being built.
+     *
+     * @param appTemplate the application in which the game is played
+     */
     public GameData(AppTemplate appTemplate) {
+        this(appTemplate, (String) null);
+    }
+
+    /**
+     * Creates a game that is not attached to any application, for playing without a user interface.
+     *
+     * @param targetWord the word to be guessed
+     */
+    public GameData(String targetWord) {
+        this(null, targetWord);
+    }
+
+    public GameData(AppTemplate appTemplate, String targetWord) {
         this.appTemplate = appTemplate;
-        this.targetWord = setTargetWord();
-        this.goodGuesses = new HashSet<>();
-        this.badGuesses = new HashSet<>();
+        this.goodGuesses = new GuessSet();
+        this.badGuesses = new GuessSet();
         this.remainingGuesses = TOTAL_NUMBER_OF_GUESSES_ALLOWED;
+        this.wordIndex = -1;
+        this.letterPositions = new long[26];
+        setTargetWord(targetWord);
     }
 
     @Override
     public void reset() {
-        this.targetWord = null;
-        this.goodGuesses = new HashSet<>();
-        this.badGuesses = new HashSet<>();
+        setTargetWord(null);
+        this.goodGuesses = new GuessSet();
+        this.badGuesses = new GuessSet();
         this.remainingGuesses = TOTAL_NUMBER_OF_GUESSES_ALLOWED;
-        appTemplate.getWorkspaceComponent().reloadWorkspace();
+        this.gameId = 0L;
+        this.workFile = null;
+        if (appTemplate != null)
+            appTemplate.getWorkspaceComponent().reloadWorkspace();
     }
 
     public String getTargetWord() {
         return targetWord;
     }
 
-    private String setTargetWord() {
-        URL wordsResource = getClass().getClassLoader().getResource("words/words.txt");
-        assert wordsResource != null;
+    public GameData setTargetWord(String targetWord) {
+        if (targetWord != null && targetWord.length() > MAX_TARGET_WORD_LENGTH)
+            throw new IllegalArgumentException(String.format("Target word cannot be longer than %d letters.",
+                                                             MAX_TARGET_WORD_LENGTH));
+        this.targetWord = targetWord;
+        Arrays.fill(letterPositions, 0L);
+        hasNonLetters = false;
+        if (targetWord != null) {
+            for (int i = 0; i < targetWord.length(); i++) {
+                char c = targetWord.charAt(i);
+                if (c >= 'a' && c <= 'z')
+                    letterPositions[c - 'a'] |= 1L << i;
+                else
+                    hasNonLetters = true;
+            }
+        }
+        updateRevealedPositions();
+        return this;
+    }
 
-        int toSkip = new Random().nextInt(TOTAL_NUMBER_OF_STORED_WORDS);
-        try (Stream<String> lines = Files.lines(Paths.get(wordsResource.toURI()))) {
-            return lines.skip(toSkip).findFirst().get();
-        } catch (IOException | URISyntaxException e) {
-            e.printStackTrace();
-            System.exit(1);
+    /**
+     * @param c a character
+     * @return the positions at which the character appears in the target word, with bit i set for position i
+     */
+    public long positionsOf(char c) {
+        if (c >= 'a' && c <= 'z')
+            return letterPositions[c - 'a'];
+        long positions = 0L;
+        if (hasNonLetters) {
+            for (int i = 0; i < targetWord.length(); i++)
+                if (targetWord.charAt(i) == c)
+                    positions |= 1L << i;
         }
+        return positions;
+    }
 
-        throw new GameError("Unable to load initial target word.");
+    /** @return the positions of the target word whose letters have been guessed, with bit i set for position i */
+    public long getRevealedPositions() {
+        return revealed;
     }
 
-    public GameData setTargetWord(String targetWord) {
-        this.targetWord = targetWord;
+    /** @return {@code true} if every letter of the target word has been guessed */
+    public boolean isWordRevealed() {
+        return targetWord != null && revealed == wordPositions();
+    }
+
+    private long wordPositions() {
+        return targetWord.length() == Long.SIZE ? -1L : (1L << targetWord.length()) - 1;
+    }
+
+    private void updateRevealedPositions() {
+        revealed = 0L;
+        if (targetWord != null)
+            for (char c : goodGuesses)
+                revealed |= positionsOf(c);
+    }
+
+    /**
+     * Resolves a guess against the target word, recording it as a good guess if the character appears anywhere in the
+     * word, and as a bad guess otherwise.
+     *
+     * @param c the character guessed
+     * @return the positions of the target word revealed by the guess, with bit i set for position i; this is zero for a
+     * bad guess, and for a character that had already been guessed
+     */
+    public long guess(char c) {
+        if (isGuessed(c))
+            return 0L;
+        long positions = positionsOf(c);
+        if (positions == 0L) {
+            addBadGuess(c);
+        } else {
+            goodGuesses.add(c);
+            revealed |= positions;
+        }
+        return positions;
+    }
+
+    /**
+     * Copies this game, for saving in the background while play goes on. The copy is not attached to any application,
+     * and nothing done to this game afterwards changes it.
+     *
+     * @return a copy of this game
+     */
+    public GameData snapshot() {
+        GameData copy = new GameData(targetWord);
+        copy.setWordSequence(wordIndex, sequenceSeed, sequencePosition).setGameId(gameId);
+        copy.goodGuesses.addAll(goodGuesses);
+        copy.badGuesses.addAll(badGuesses);
+        copy.remainingGuesses = remainingGuesses;
+        copy.updateRevealedPositions();
+        return copy;
+    }
+
+    public int getWordIndex() {
+        return wordIndex;
+    }
+
+    public long getSequenceSeed() {
+        return sequenceSeed;
+    }
+
+    public long getSequencePosition() {
+        return sequencePosition;
+    }
+
+    /**
+     * Records where in the player's word sequence the target word was drawn from, so that the sequence can be picked up
+     * again from this game after it is saved and loaded.
+     *
+     * @param wordIndex        the position of the target word in the dictionary
+     * @param sequenceSeed     the seed of the player's word sequence
+     * @param sequencePosition the position of the target word in that sequence
+     * @return this game
+     */
+    public GameData setWordSequence(int wordIndex, long sequenceSeed, long sequencePosition) {
+        this.wordIndex = wordIndex;
+        this.sequenceSeed = sequenceSeed;
+        this.sequencePosition = sequencePosition;
+        return this;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public GameData setGameId(long gameId) {
+        this.gameId = gameId;
+        return this;
+    }
+
+    /**
+     * @return the file this game was last saved to or loaded from, or {@code null} if it has never been in a file; a
+     * new game never has one, so it is never autosaved over another game's file
+     */
+    public Path getWorkFile() {
+        return workFile;
+    }
+
+    public GameData setWorkFile(Path workFile) {
+        this.workFile = workFile;
         return this;
     }
 
@@ -73,9 +222,10 @@ public class GameData implements AppDataComponent {
         return goodGuesses;
     }
 
-    @SuppressWarnings("unused")
     public GameData setGoodGuesses(Set<Character> goodGuesses) {
-        this.goodGuesses = goodGuesses;
+        this.goodGuesses = new GuessSet();
+        this.goodGuesses.addAll(goodGuesses);
+        updateRevealedPositions();
         return this;
     }
 
@@ -83,25 +233,43 @@ public class GameData implements AppDataComponent {
         return badGuesses;
     }
 
-    @SuppressWarnings("unused")
     public GameData setBadGuesses(Set<Character> badGuesses) {
-        this.badGuesses = badGuesses;
+        this.badGuesses = new GuessSet();
+        this.badGuesses.addAll(badGuesses);
+        this.remainingGuesses = TOTAL_NUMBER_OF_GUESSES_ALLOWED - this.badGuesses.size();
         return this;
     }
 
+    /** @return the letters guessed correctly so far, with bit k set for the letter 'a' + k */
+    public int getGoodGuessMask() {
+        return goodGuesses.mask();
+    }
+
+    /** @return the letters guessed incorrectly so far, with bit k set for the letter 'a' + k */
+    public int getBadGuessMask() {
+        return badGuesses.mask();
+    }
+
+    /**
+     * @param c a character
+     * @return {@code true} if the character has already been guessed, whether correctly or not
+     */
+    public boolean isGuessed(char c) {
+        return goodGuesses.contains(c) || badGuesses.contains(c);
+    }
+
     public int getRemainingGuesses() {
         return remainingGuesses;
     }
 
     public void addGoodGuess(char c) {
-        goodGuesses.add(c);
+        if (goodGuesses.add(c) && targetWord != null)
+            revealed |= positionsOf(c);
     }
 
     public void addBadGuess(char c) {
-        if (!badGuesses.contains(c)) {
-            badGuesses.add(c);
+        if (badGuesses.add(c))
             remainingGuesses--;
-        }
     }
 
 
@@ -1,31 +1,329 @@
 package data;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import components.AppDataComponent;
 import components.AppFileComponent;
+import journal.GameJournal;
+import journal.JournalExport;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 /**
+ * Saves and loads games as JSON. Games are written straight from their guess state with a {@link JsonGenerator}, and
+ * read back token by token with a {@link JsonParser}, so no tree or map is ever built for a game along the way. A saved
+ * game is a single object:
+ * <pre>
+ *     {
+ *       "TARGET_WORD"       : "hangman",
+ *       "WORD_INDEX"        : 129754,
+ *       "SEQUENCE_SEED"     : -3920184752031874,
+ *       "SEQUENCE_POSITION" : 12,
+ *       "GOOD_GUESSES"      : ["a", "n"],
+ *       "BAD_GUESSES"       : ["e"]
+ *     }
+ * </pre>
+ * Only the target word is required. Any number of games can be kept in one file, either in an array or one after
+ * another, and {@link #loadAll(Path, Consumer)} streams them out of it one game at a time.
+ * <p>
+ * Files with the extension {@value #BINARY_EXTENSION} are handed to {@link BinaryGameDataFile} instead, which stores
+ * each game in a few bytes.
+ * <p>
+ * Exporting writes out the history of every game played, from the {@link GameJournal}, rather than a single game; see
+ * {@link JournalExport} for the formats.
+ *
  * @author Ritwik Banerjee
  */
 public class GameDataFile implements AppFileComponent {
 
-    public static final String TARGET_WORD  = "TARGET_WORD";
-    public static final String GOOD_GUESSES = "GOOD_GUESSES";
-    public static final String BAD_GUESSES  = "BAD_GUESSES";
+    public static final String TARGET_WORD       = "TARGET_WORD";
+    public static final String GOOD_GUESSES      = "GOOD_GUESSES";
+    public static final String BAD_GUESSES       = "BAD_GUESSES";
+    public static final String WORD_INDEX        = "WORD_INDEX";
+    public static final String SEQUENCE_SEED     = "SEQUENCE_SEED";
+    public static final String SEQUENCE_POSITION = "SEQUENCE_POSITION";
 
-    @Override
-    public void saveData(AppDataComponent data, Path to) {
+    public static final String BINARY_EXTENSION = "hgs";
+
+    private static final JsonFactory        JSON_FACTORY = new JsonFactory(); // thread-safe, and costly to make
+    private static final BinaryGameDataFile BINARY       = new BinaryGameDataFile();
+
+    /** Tells a progress listener how much of a file has been read, and stops reading once the thread is interrupted. */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final long           size;     // the size of the file, in bytes
+        private final DoubleConsumer progress;
+        private long                 consumed; // the number of bytes read so far
+
+        private ProgressInputStream(InputStream in, long size, DoubleConsumer progress) {
+            super(in);
+            this.size = size;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (Thread.interrupted())
+                throw new InterruptedIOException("Loading was interrupted.");
+            int n = super.read(b, off, len);
+            if (n > 0 && size > 0) {
+                consumed += n;
+                progress.accept(Math.min(1.0, (double) consumed / size));
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            consumed += skipped;
+            return skipped;
+        }
+    }
 
+    /**
+     * @param file a game file
+     * @return {@code true} if the file is in the binary format, going by its extension
+     */
+    public static boolean isBinary(Path file) {
+        Path name = file.getFileName();
+        return name != null && name.toString().toLowerCase().endsWith("." + BINARY_EXTENSION);
+    }
+
+    @Override
+    public void saveData(AppDataComponent data, Path to) throws IOException {
+        if (isBinary(to)) {
+            BINARY.saveData(data, to);
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(to);
+             JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.useDefaultPrettyPrinter();
+            write((GameData) data, json);
+        }
     }
 
     @Override
     public void loadData(AppDataComponent data, Path from) throws IOException {
+        if (isBinary(from)) {
+            BINARY.loadData(data, from);
+            return;
+        }
+        try (InputStream in = Files.newInputStream(from)) {
+            load(in, from, (GameData) data);
+        }
+    }
+
+    /**
+     * Loads a game, reporting progress as the fraction of the file's bytes the parser has taken in so far. If the
+     * loading thread is interrupted, the load stops at the parser's next read with an {@link InterruptedIOException}.
+     */
+    @Override
+    public void loadData(AppDataComponent data, Path from, DoubleConsumer progress) throws IOException {
+        if (isBinary(from)) {
+            BINARY.loadData(data, from, progress);
+            return;
+        }
+        try (InputStream in = new ProgressInputStream(Files.newInputStream(from), Files.size(from), progress)) {
+            load(in, from, (GameData) data);
+        }
+        progress.accept(1);
+    }
 
+    private static void load(InputStream in, Path from, GameData into) throws IOException {
+        try (JsonParser json = JSON_FACTORY.createParser(in)) {
+            if (json.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException(from + " does not hold a saved game.");
+            read(json, into, Dictionary.getDictionary());
+        }
     }
 
-    /** This method will be used if we need to export data into other formats. */
+    /**
+     * Exports the history of every game recorded in the application's journal, including the one being played, as CSV
+     * or JSON Lines going by the file's extension. The history is streamed from the journal to the file, so it can be
+     * of any length.
+     *
+     * @param data     not used, since every game is exported
+     * @param filePath the file to export to
+     */
     @Override
-    public void exportData(AppDataComponent data, Path filePath) throws IOException { }
+    public void exportData(AppDataComponent data, Path filePath) throws IOException {
+        GameJournal journal = GameJournal.getJournal();
+        journal.flush(); // so that the export includes events still on their way to disk
+        JournalExport.export(journal.getPath(), filePath);
+    }
+
+    /**
+     * Saves any number of games to a single file, as a JSON array unless the file is in the binary format.
+     *
+     * @param games the games to save
+     * @param to    the file to save them to
+     * @return the number of games saved
+     */
+    public static int saveAll(Iterable<GameData> games, Path to) throws IOException {
+        if (isBinary(to))
+            return BinaryGameDataFile.saveAll(games, to);
+        int count = 0;
+        try (OutputStream out = Files.newOutputStream(to);
+             JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (GameData game : games) {
+                write(game, json);
+                count++;
+            }
+            json.writeEndArray();
+        }
+        return count;
+    }
+
+    /**
+     * Loads every game in a file, whether the file holds a single game, an array of games, or games one after another,
+     * in either format.
+     * Only one game is held in memory at a time, so files of any size can be loaded.
+     *
+     * @param from the file to load from
+     * @param sink receives each game as it is loaded; the games are not attached to any application
+     * @return the number of games loaded
+     */
+    public static int loadAll(Path from, Consumer<GameData> sink) throws IOException {
+        if (isBinary(from))
+            return BinaryGameDataFile.loadAll(from, sink);
+        Dictionary dictionary = Dictionary.getDictionary();
+        int        count      = 0;
+        try (InputStream in = Files.newInputStream(from);
+             JsonParser json = JSON_FACTORY.createParser(in)) {
+            for (JsonToken token = json.nextToken(); token != null; token = json.nextToken()) {
+                if (token == JsonToken.START_ARRAY || token == JsonToken.END_ARRAY)
+                    continue;
+                if (token != JsonToken.START_OBJECT)
+                    throw new IOException(String.format("Expected a saved game in %s at %s.", from,
+                                                        json.getCurrentLocation()));
+                sink.accept(read(json, null, dictionary));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void write(GameData game, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField(TARGET_WORD, game.getTargetWord());
+        if (game.getWordIndex() >= 0) {
+            json.writeNumberField(WORD_INDEX, game.getWordIndex());
+            json.writeNumberField(SEQUENCE_SEED, game.getSequenceSeed());
+            json.writeNumberField(SEQUENCE_POSITION, game.getSequencePosition());
+        }
+        writeGuesses(json, GOOD_GUESSES, game.getGoodGuesses());
+        writeGuesses(json, BAD_GUESSES, game.getBadGuesses());
+        json.writeEndObject();
+    }
+
+    private static void writeGuesses(JsonGenerator json, String field, Iterable<Character> guesses) throws IOException {
+        char[] c = new char[1];
+        json.writeArrayFieldStart(field);
+        for (char guess : guesses) {
+            c[0] = guess;
+            json.writeString(c, 0, 1);
+        }
+        json.writeEndArray();
+    }
+
+    /**
+     * Reads the rest of a saved game, the parser having just read the opening brace. The game's place in the word
+     * sequence is only kept if its word index names its target word in the dictionary; a save from another dictionary,
+     * or one whose index has been tampered with, still loads, but the game then carries on outside the sequence.
+     *
+     * @param json       the parser
+     * @param into       the game to load into, or {@code null} to load into a new game
+     * @param dictionary the dictionary the word index refers to
+     * @return the game loaded
+     */
+    private static GameData read(JsonParser json, GameData into, Dictionary dictionary) throws IOException {
+        String   targetWord = null;
+        int      wordIndex  = -1;
+        long     seed       = 0L;
+        long     position   = 0L;
+        GuessSet good       = new GuessSet();
+        GuessSet bad        = new GuessSet();
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String    field = json.getCurrentName();
+            JsonToken value = json.nextToken();
+            switch (field) {
+                case TARGET_WORD:
+                    targetWord = json.getValueAsString();
+                    break;
+                case WORD_INDEX:
+                    wordIndex = json.getValueAsInt(-1);
+                    break;
+                case SEQUENCE_SEED:
+                    seed = json.getValueAsLong();
+                    break;
+                case SEQUENCE_POSITION:
+                    position = json.getValueAsLong();
+                    break;
+                case GOOD_GUESSES:
+                    readGuesses(json, value, good);
+                    break;
+                case BAD_GUESSES:
+                    readGuesses(json, value, bad);
+                    break;
+                default:
+                    json.skipChildren();
+            }
+        }
+        if (json.getCurrentToken() != JsonToken.END_OBJECT)
+            throw new IOException("Saved game is cut short at " + json.getCurrentLocation() + ".");
+        if (targetWord == null || targetWord.isEmpty())
+            throw new IOException("Saved game has no target word, at " + json.getCurrentLocation() + ".");
+        if (wordIndex < 0 || wordIndex >= dictionary.size() || position < 0
+            || !dictionary.matches(wordIndex, targetWord)) {
+            wordIndex = -1;
+            seed = 0L;
+            position = 0L;
+        }
+
+        try {
+            GameData game = into == null ? new GameData(targetWord) : into.setTargetWord(targetWord);
+            game.setWordSequence(wordIndex, seed, position).setGameId(0L).setGoodGuesses(good).setBadGuesses(bad);
+            for (char c : good)
+                if (game.positionsOf(c) == 0L)
+                    throw new IOException(String.format("Saved game has '%c' as a good guess, but \"%s\" has no '%c'.",
+                                                        c, targetWord, c));
+            for (char c : bad)
+                if (game.positionsOf(c) != 0L)
+                    throw new IOException(String.format("Saved game has '%c' as a bad guess, but \"%s\" has a '%c'.",
+                                                        c, targetWord, c));
+            return game;
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void readGuesses(JsonParser json, JsonToken token, GuessSet guesses) throws IOException {
+        if (token != JsonToken.START_ARRAY)
+            throw new IOException("Expected an array of guesses at " + json.getCurrentLocation() + ".");
+        while (json.nextToken() == JsonToken.VALUE_STRING) {
+            if (json.getTextLength() != 1)
+                throw new IOException("Expected a single character as a guess at " + json.getCurrentLocation() + ".");
+            guesses.add(json.getTextCharacters()[json.getTextOffset()]);
+        }
+        if (json.getCurrentToken() != JsonToken.END_ARRAY)
+            throw new IOException("Expected a single character as a guess at " + json.getCurrentLocation() + ".");
+    }
 }
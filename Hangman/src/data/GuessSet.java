@@ -0,0 +1,141 @@
+package data;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of guessed characters, held as a bitmask with one bit per letter from 'a' to 'z'. Any other character that is
+ * guessed goes into a {@link BitSet}, which is only made once such a character turns up. Adding and querying through
+ * the {@code char} methods allocates nothing; the {@link java.util.Set} methods are there so that the set can also be
+ * used wherever a {@code Set<Character>} is expected.
+ *
+ * @author Ritwik Banerjee
+ */
+public final class GuessSet extends AbstractSet<Character> {
+
+    private int    mask;   // bit k is set if the letter 'a' + k is in the set
+    private BitSet others; // every other character in the set, or null if there are none
+    private int    size;
+
+    public GuessSet() { }
+
+    /**
+     * @param mask the letters to start with, with bit k set for the letter 'a' + k
+     */
+    public GuessSet(int mask) {
+        this.mask = mask & ((1 << 26) - 1);
+        this.size = Integer.bitCount(this.mask);
+    }
+
+    /**
+     * @param c the character to add
+     * @return {@code true} if the character was not already in the set
+     */
+    public boolean add(char c) {
+        int bit = Dictionary.letterMask(c);
+        if (bit != 0) {
+            if ((mask & bit) != 0)
+                return false;
+            mask |= bit;
+        } else {
+            if (others == null)
+                others = new BitSet();
+            else if (others.get(c))
+                return false;
+            others.set(c);
+        }
+        size++;
+        return true;
+    }
+
+    public boolean contains(char c) {
+        int bit = Dictionary.letterMask(c);
+        return bit != 0 ? (mask & bit) != 0 : others != null && others.get(c);
+    }
+
+    /** @return the letters in the set, with bit k set for the letter 'a' + k */
+    public int mask() {
+        return mask;
+    }
+
+    /** @return {@code true} if the set holds some character other than the letters 'a' to 'z' */
+    public boolean hasOthers() {
+        return others != null && !others.isEmpty();
+    }
+
+    @Override
+    public boolean add(Character c) {
+        return add(c.charValue());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Character && contains(((Character) o).charValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o))
+            return false;
+        char c   = (Character) o;
+        int  bit = Dictionary.letterMask(c);
+        if (bit != 0)
+            mask &= ~bit;
+        else
+            others.clear(c);
+        size--;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        mask = 0;
+        others = null;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Character> iterator() {
+        return new Iterator<Character>() {
+            int     letters = mask;                                       // letters not yet visited
+            int     other   = others == null ? -1 : others.nextSetBit(0); // next other character, or -1 once done
+            char    last;
+            boolean canRemove;
+
+            @Override
+            public boolean hasNext() {
+                return letters != 0 || other >= 0;
+            }
+
+            @Override
+            public Character next() {
+                if (letters != 0) {
+                    last = (char) ('a' + Integer.numberOfTrailingZeros(letters));
+                    letters &= letters - 1;
+                } else if (other >= 0) {
+                    last = (char) other;
+                    other = others.nextSetBit(other + 1);
+                } else {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove)
+                    throw new IllegalStateException();
+                GuessSet.this.remove(last);
+                canRemove = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package data;
+
+import apptemplate.AppTemplate;
+import controller.GameError;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Supplies target words from a small ring that is kept full by a background thread, so that a new game can start
+ * without waiting on the dictionary. The first words are prefetched as soon as the supplier is created, which also
+ * takes the initial load of the dictionary off the caller's thread.
+ * <p>
+ * Words are drawn from a {@link WordSequencer}, so a player sees every word in the dictionary before seeing any word
+ * twice. The games made by {@link #newGame(AppTemplate)} record their place in the sequence, and
+ * {@link #resume(long, long)} picks the sequence up again from there.
+ *
+ * @author Ritwik Banerjee
+ */
+public class PrefetchingWordSupplier implements Supplier<String>, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 4;
+
+    private final BlockingQueue<Prefetched> ring;       // words chosen ahead of time, waiting to be handed out
+    private final Thread                    prefetcher; // keeps the ring full, and blocks while it is
+    private long                            seed;       // seed of the player's word sequence
+    private long                            position;   // where the next sequencer is to start
+    private WordSequencer                   sequencer;  // made once the size of the dictionary is known
+
+    /** A word taken from the sequence, along with its place in the sequence and in the dictionary. */
+    private static final class Prefetched {
+        final WordSequencer source;
+        final long          position;
+        final int           index;
+        final String        word;
+
+        Prefetched(WordSequencer source, long position, int index, String word) {
+            this.source = source;
+            this.position = position;
+            this.index = index;
+            this.word = word;
+        }
+    }
+
+    public PrefetchingWordSupplier() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PrefetchingWordSupplier(int capacity) {
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.seed = ThreadLocalRandom.current().nextLong();
+        this.prefetcher = new Thread(this::prefetch, "word-prefetcher");
+        this.prefetcher.setDaemon(true);
+        this.prefetcher.start();
+    }
+
+    private void prefetch() {
+        try {
+            while (!Thread.currentThread().isInterrupted())
+                ring.put(nextWord());
+        } catch (InterruptedException ignored) {
+            // the supplier was closed
+        } catch (IOException e) {
+            e.printStackTrace(); // take() will pick words itself, and report the failure to its caller
+        }
+    }
+
+    /**
+     * @return the next target word, taken from the ring if one is ready, or else picked on the calling thread
+     */
+    @Override
+    public String get() {
+        return take().word;
+    }
+
+    /**
+     * @param appTemplate the application in which the game is played
+     * @return a new game for the next target word in the player's sequence
+     */
+    public GameData newGame(AppTemplate appTemplate) {
+        Prefetched next = take();
+        return new GameData(appTemplate, next.word).setWordSequence(next.index, next.source.getSeed(), next.position);
+    }
+
+    /**
+     * Continues the player's word sequence from a given point, discarding any words prefetched from where it was.
+     *
+     * @param seed     the seed of the sequence
+     * @param position the position in the sequence of the next word to be supplied
+     */
+    public synchronized void resume(long seed, long position) {
+        this.seed = seed;
+        this.position = position;
+        this.sequencer = null;
+        ring.clear();
+    }
+
+    private Prefetched take() {
+        try {
+            for (Prefetched next = ring.poll(); next != null; next = ring.poll()) {
+                synchronized (this) {
+                    if (next.source == sequencer)
+                        return next;
+                }
+            }
+            return nextWord();
+        } catch (IOException e) {
+            throw new GameError("Unable to load target word: " + e.getMessage());
+        }
+    }
+
+    private Prefetched nextWord() throws IOException {
+        Dictionary dictionary = Dictionary.getDictionary();
+        synchronized (this) {
+            if (sequencer == null)
+                sequencer = new WordSequencer(seed, position, dictionary.size());
+            long next  = sequencer.getPosition();
+            int  index = sequencer.next();
+            return new Prefetched(sequencer, next, index, dictionary.wordAt(index));
+        }
+    }
+
+    /** Stops prefetching. Words may still be asked for, but will be picked on the calling thread. */
+    @Override
+    public void close() {
+        prefetcher.interrupt();
+    }
+}
@@ -0,0 +1,86 @@
+package data;
+
+/**
+ * Walks the indices of a dictionary in a pseudo-random order that never repeats an index until every index has been
+ * visited. The order is a keyed Feistel permutation of the index range, restricted to the range by cycle walking, so
+ * the entire state of a sequence is its seed and how far along it is. Once a full pass over the dictionary is complete,
+ * the next pass follows a fresh permutation derived from the same seed.
+ *
+ * @author Ritwik Banerjee
+ */
+public final class WordSequencer {
+
+    private static final int  ROUNDS     = 4;
+    private static final long PASS_SPACE = 0x9E3779B97F4A7C15L; // spreads the keys of consecutive passes apart
+
+    private final long seed;     // the key from which the permutation of every pass is derived
+    private final int  size;     // the number of indices being permuted
+    private final int  halfBits; // the width of each half of a Feistel block
+    private final int  halfMask;
+    private long       position; // the number of indices handed out so far
+
+    /**
+     * @param seed     the key of the sequence
+     * @param position how many indices of the sequence have already been handed out
+     * @param size     the number of indices to permute, i.e., the size of the dictionary
+     */
+    public WordSequencer(long seed, long position, int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Cannot sequence an empty dictionary.");
+        if (position < 0)
+            throw new IllegalArgumentException("A sequence cannot start before its beginning.");
+        int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        this.seed = seed;
+        this.size = size;
+        this.halfBits = Math.max(1, (bits + 1) / 2);
+        this.halfMask = (1 << halfBits) - 1;
+        this.position = position;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** @return the next index in the sequence */
+    public synchronized int next() {
+        return indexAt(position++);
+    }
+
+    /**
+     * @param position a position in the sequence
+     * @return the index found at that position of the sequence
+     */
+    public int indexAt(long position) {
+        long key   = mix(seed + (position / size) * PASS_SPACE);
+        int  index = (int) (position % size);
+        do {
+            index = permute(index, key);
+        } while (index >= size);
+        return index;
+    }
+
+    private int permute(int block, long key) {
+        int left  = block >>> halfBits;
+        int right = block & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            int next = left ^ ((int) mix(key ^ ((long) round << 32) ^ right) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
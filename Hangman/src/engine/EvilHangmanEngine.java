@@ -0,0 +1,181 @@
+package engine;
+
+import data.Dictionary;
+import data.GameData;
+
+import java.nio.IntBuffer;
+
+/**
+ * An engine that cheats. Instead of sticking to one target word, it keeps every word in the dictionary that is still
+ * consistent with the game so far, and each time a letter is guessed, it splits those words into families by where
+ * the letter appears in them, and carries on with only the largest family. A family with no occurrences of the letter
+ * is preferred whenever it is among the largest, since that costs the player a guess. The {@link GameData} always
+ * holds some word of the current family as its target, so everything else about the game plays exactly as it does in
+ * a {@link HangmanEngine}.
+ * <p>
+ * Families are keyed by the positions at which the letter appears, as a bitmask, and are counted in an open-addressing
+ * table of primitive keys and counts. The table and the patterns are only needed while a guess is being split, so
+ * every engine on a thread shares one set of them, grown to the largest set of candidates seen on the thread; once
+ * grown, splitting allocates nothing, and an engine itself holds no more than the positions of its candidates. The
+ * candidates for a new game are drawn from the dictionary's words of the target's length alone, rather than from a
+ * scan of the entire dictionary.
+ *
+ * @author Ritwik Banerjee
+ */
+public class EvilHangmanEngine extends HangmanEngine {
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Dictionary dictionary;
+    private int[]            candidates; // positions in the dictionary of the words still in play
+    private int              size;       // the number of candidates
+    private int              target;     // the position in the dictionary of the game's current target word
+
+    /** The working space for splitting candidates into families, shared by every engine on a thread. */
+    private static final class Scratch {
+        private long[] patterns = new long[0]; // patterns[i] is where the guessed letter appears in candidates[i]
+        private long[] keys     = new long[0]; // the pattern of each family in the table
+        private int[]  counts   = new int[0];  // the size of each family in the table, zero for an empty slot
+        private int[]  used     = new int[0];  // the slots of the table in use, in the order they were filled
+
+        /** Makes room for splitting the given number of candidates. */
+        private Scratch fit(int size) {
+            if (patterns.length < size) {
+                int capacity = Integer.highestOneBit(Math.max(size, 8)) << 2; // at most half full
+                patterns = new long[size];
+                keys = new long[capacity];
+                counts = new int[capacity];
+                used = new int[capacity];
+            }
+            return this;
+        }
+    }
+
+    public EvilHangmanEngine(Dictionary dictionary, GameData gamedata) {
+        this(dictionary, gamedata, GameListener.NONE);
+    }
+
+    public EvilHangmanEngine(Dictionary dictionary, GameData gamedata, GameListener listener) {
+        super(gamedata, listener);
+        this.dictionary = dictionary;
+        startFamily(gamedata);
+    }
+
+    @Override
+    public void reset(GameData gamedata) {
+        super.reset(gamedata);
+        if (dictionary != null) // null only while the superclass constructor runs; the constructor catches up after
+            startFamily(gamedata);
+    }
+
+    /** @return the number of words the target could still be */
+    public int getCandidateCount() {
+        return size;
+    }
+
+    @Override
+    public GuessResult guess(char c) {
+        GameData gamedata = getGameData();
+        if (size > 1 && !isOver() && !gamedata.isGuessed(c)) {
+            keepLargestFamily(c);
+            if (candidates[0] != target) {
+                target = candidates[0];
+                gamedata.setTargetWord(dictionary.wordAt(target))
+                        .setWordSequence(target, gamedata.getSequenceSeed(), gamedata.getSequencePosition());
+            }
+        }
+        return super.guess(c);
+    }
+
+    /**
+     * Collects every word in the dictionary that could be the target of the given game, given its length and the
+     * guesses made so far.
+     */
+    private void startFamily(GameData gamedata) {
+        String    word    = gamedata.getTargetWord();
+        IntBuffer words   = dictionary.wordsOfLength(word.length());
+        int       count   = words.limit();
+        boolean   guessed = !gamedata.getGoodGuesses().isEmpty() || !gamedata.getBadGuesses().isEmpty();
+        if (candidates == null || candidates.length < count)
+            candidates = new int[count];
+
+        size = 0;
+        target = -1;
+        for (int k = 0; k < count; k++) {
+            int i = words.get(k);
+            if (guessed && !isConsistent(i, gamedata))
+                continue;
+            candidates[size++] = i;
+            if (target < 0 && isWord(i, word))
+                target = i;
+        }
+    }
+
+    private boolean isWord(int index, String word) {
+        for (int p = 0; p < word.length(); p++)
+            if (dictionary.charAt(index, p) != word.charAt(p))
+                return false;
+        return true;
+    }
+
+    private boolean isConsistent(int word, GameData gamedata) {
+        for (char c : gamedata.getGoodGuesses())
+            if (positionsOf(word, c) != gamedata.positionsOf(c))
+                return false;
+        for (char c : gamedata.getBadGuesses())
+            if (positionsOf(word, c) != 0L)
+                return false;
+        return true;
+    }
+
+    /** Splits the candidates by where the given character appears in them, and keeps only the largest family. */
+    private void keepLargestFamily(char c) {
+        Scratch scratch  = SCRATCH.get().fit(size);
+        long[]  patterns = scratch.patterns;
+        long[]  keys     = scratch.keys;
+        int[]   counts   = scratch.counts;
+        int[]   used     = scratch.used;
+        int     mask     = keys.length - 1;
+        int     bits     = Integer.numberOfTrailingZeros(keys.length);
+        int     bit      = Dictionary.letterMask(c);
+        int     families = 0;
+        for (int i = 0; i < size; i++) {
+            long pattern = bit != 0 && (dictionary.letterMaskOf(candidates[i]) & bit) == 0
+                           ? 0L
+                           : positionsOf(candidates[i], c);
+            patterns[i] = pattern;
+            int slot = (int) ((pattern * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - bits));
+            while (counts[slot] != 0 && keys[slot] != pattern)
+                slot = (slot + 1) & mask;
+            if (counts[slot]++ == 0) {
+                keys[slot] = pattern;
+                used[families++] = slot;
+            }
+        }
+
+        long best      = 0L;
+        int  bestCount = 0;
+        for (int f = 0; f < families; f++) {
+            int slot = used[f];
+            if (counts[slot] > bestCount || (counts[slot] == bestCount && keys[slot] == 0L)) {
+                best = keys[slot];
+                bestCount = counts[slot];
+            }
+            counts[slot] = 0;
+        }
+
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+            if (patterns[i] == best)
+                candidates[kept++] = candidates[i];
+        size = kept;
+    }
+
+    private long positionsOf(int word, char c) {
+        long positions = 0L;
+        for (int p = dictionary.lengthOf(word) - 1; p >= 0; p--)
+            if (dictionary.charAt(word, p) == c)
+                positions |= 1L << p;
+        return positions;
+    }
+}
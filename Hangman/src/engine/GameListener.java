@@ -0,0 +1,35 @@
+package engine;
+
+import data.GameData;
+import engine.HangmanEngine.GuessResult;
+
+/**
+ * Receives the events of the games played by a {@link HangmanEngine}: the start of every game, every guess that
+ * changes the game, and the end of every game that is played to the finish. Listeners are called on the thread playing
+ * the game, after the game has been updated, so they should return quickly.
+ *
+ * @author Ritwik Banerjee
+ */
+public interface GameListener {
+
+    /** A listener that ignores every event. */
+    GameListener NONE = new GameListener() { };
+
+    /**
+     * @param gamedata the game that was started
+     */
+    default void gameStarted(GameData gamedata) { }
+
+    /**
+     * @param gamedata the game in which the guess was made
+     * @param c        the character guessed
+     * @param result   the outcome of the guess, which is always {@link GuessResult#GOOD} or {@link GuessResult#BAD}
+     */
+    default void guessMade(GameData gamedata, char c, GuessResult result) { }
+
+    /**
+     * @param gamedata the game that ended
+     * @param won      whether the game was won
+     */
+    default void gameEnded(GameData gamedata, boolean won) { }
+}
@@ -0,0 +1,98 @@
+package engine;
+
+import data.GameData;
+
+/**
+ * The rules of Hangman, independent of any user interface. An engine plays one game at a time, held in a
+ * {@link GameData}: it resolves each guess against the target word, and decides when the game has been won or lost.
+ * Nothing here depends on JavaFX, so games can be played just as well by a simulation or a server as by the GUI, and
+ * since an engine can be handed a fresh game with {@link #reset(GameData)}, one engine can play any number of them.
+ * Every game an engine plays can be observed through a {@link GameListener}.
+ *
+ * @author Ritwik Banerjee
+ */
+public class HangmanEngine {
+
+    /** The possible outcomes of a single guess. */
+    public enum GuessResult {
+        /** The guess revealed one or more letters of the target word. */
+        GOOD,
+        /** The guess is not in the target word, and cost the player one of their remaining guesses. */
+        BAD,
+        /** The guess had already been made, and changed nothing. */
+        ALREADY_GUESSED,
+        /** The game was already over, so the guess was ignored. */
+        GAME_OVER
+    }
+
+    private final GameListener listener;     // told of every game played, and every guess made in them
+    private GameData           gamedata;     // the game being played
+    private long               lastRevealed; // the positions revealed by the most recent guess
+
+    public HangmanEngine(GameData gamedata) {
+        this(gamedata, GameListener.NONE);
+    }
+
+    public HangmanEngine(GameData gamedata, GameListener listener) {
+        this.listener = listener;
+        reset(gamedata);
+    }
+
+    /**
+     * Starts playing another game with this engine.
+     *
+     * @param gamedata the game to play
+     */
+    public void reset(GameData gamedata) {
+        if (gamedata.getTargetWord() == null)
+            throw new IllegalArgumentException("Cannot play a game that has no target word.");
+        this.gamedata = gamedata;
+        this.lastRevealed = 0L;
+        listener.gameStarted(gamedata);
+    }
+
+    public GameData getGameData() {
+        return gamedata;
+    }
+
+    /**
+     * Resolves a guess.
+     *
+     * @param c the character guessed
+     * @return the outcome of the guess
+     */
+    public GuessResult guess(char c) {
+        lastRevealed = 0L;
+        if (isOver())
+            return GuessResult.GAME_OVER;
+        if (gamedata.isGuessed(c))
+            return GuessResult.ALREADY_GUESSED;
+        lastRevealed = gamedata.guess(c);
+        GuessResult result = lastRevealed != 0L ? GuessResult.GOOD : GuessResult.BAD;
+        listener.guessMade(gamedata, c, result);
+        if (isOver())
+            listener.gameEnded(gamedata, isWon());
+        return result;
+    }
+
+    /** @return the positions of the target word revealed by the most recent guess, with bit i set for position i */
+    public long getLastRevealed() {
+        return lastRevealed;
+    }
+
+    public int getRemainingGuesses() {
+        return gamedata.getRemainingGuesses();
+    }
+
+    public boolean isWon() {
+        return gamedata.isWordRevealed();
+    }
+
+    public boolean isLost() {
+        return !isWon() && gamedata.getRemainingGuesses() <= 0;
+    }
+
+    public boolean isOver() {
+        return isWon() || gamedata.getRemainingGuesses() <= 0;
+    }
+}
@@ -86,7 +86,8 @@ public class Workspace extends AppWorkspaceComponent {
     }
 
     private void setupHandlers() {
-        HangmanController controller = new HangmanController(app, startGame);
+        HangmanController controller = (HangmanController) gui.getFileController(); // the one behind the file toolbar
+        controller.setGameButton(startGame);
         startGame.setOnMouseClicked(e -> controller.start());
     }
 
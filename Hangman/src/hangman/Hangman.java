@@ -8,14 +8,27 @@ import components.AppWorkspaceComponent;
 import data.GameData;
 import data.GameDataFile;
 import gui.Workspace;
+import server.HangmanServer;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * @author Ritwik Banerjee
  */
 public class Hangman extends AppTemplate {
 
-    public static void main(String[] args) {
-        launch(args);
+    public static final String SERVER_MODE_ARGUMENT = "--server";
+
+    /**
+     * Launches the game. If the first argument is {@value #SERVER_MODE_ARGUMENT}, the game is instead hosted by a
+     * {@link HangmanServer}, with no user interface, on the port given by the next argument (if any).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(SERVER_MODE_ARGUMENT))
+            HangmanServer.main(Arrays.copyOfRange(args, 1, args.length));
+        else
+            launch(args);
     }
 
     public String getFileControllerClass() {
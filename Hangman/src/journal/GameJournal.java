@@ -0,0 +1,514 @@
+package journal;
+
+import data.Dictionary;
+import data.GameData;
+import engine.GameListener;
+import engine.HangmanEngine.GuessResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only log of every event in every game played, for auditing games after the fact and for rebuilding any
+ * game from its events alone. The journal is a {@link GameListener}, so it is attached to a game simply by handing it
+ * to the engine that plays the game.
+ * <p>
+ * The file starts with a header:
+ * <pre>
+ *     int  magic number, "HJNL"
+ *     int  format version
+ *     long a game ID higher than that of any game recorded up to the checkpoint
+ *     long the checkpoint: the offset just past the last batch of records known to be on disk
+ * </pre>
+ * followed by the records, each of which is:
+ * <pre>
+ *     int  length of the rest of the record, in bytes
+ *     byte type: START, GUESS or END
+ *     long game ID
+ *     long time of the event, in milliseconds since the epoch
+ *     START: int word index, long sequence seed, long sequence position
+ *     GUESS: char character guessed, byte outcome, int word index, int remaining guesses
+ *     END:   byte 1 if won and 0 if lost, int word index, int remaining guesses
+ * </pre>
+ * A game that starts with guesses already made, such as one loaded from a file, is recorded as a START followed by a
+ * GUESS for each of them. The word index is recorded with every guess, so that games in which the target word changes,
+ * as it does under an {@link engine.EvilHangmanEngine}, are rebuilt exactly.
+ * <p>
+ * Events are encoded on the thread playing the game and handed to a single writer thread, which takes everything that
+ * has piled up since its last write, writes it to the file in one go, and forces it to disk once for the whole batch.
+ * Games therefore never wait on the disk, and the cost of each force is shared by every event in the batch. A record
+ * that was only partly written when the process died is cut off the end of the file the next time it is opened, as is
+ * a tail of zeros, which is what a crash can leave behind once the file system has extended the file but before the
+ * records themselves reach the disk. Any other record that cannot be read, such as one damaged on disk or written by a
+ * newer version, stops the journal from opening at all, rather than losing every record after it.
+ * <p>
+ * The header is brought up to date after each batch is forced to disk, so opening a journal only reads the records
+ * past the checkpoint, to find where they end and which game IDs they use, rather than the entire file. Damage to a
+ * record before the checkpoint is therefore only found when the journal is read, which is harmless, since opening
+ * never truncates anything before the checkpoint either. Journals of the first version, whose header is only the magic
+ * number and the version, are still read and appended to, but are read in full each time they are opened.
+ *
+ * @author Ritwik Banerjee
+ */
+public class GameJournal implements GameListener, AutoCloseable {
+
+    public static final String JOURNAL_PROPERTY = "hangman.journal";
+    public static final String DEFAULT_JOURNAL  = "saved/games.journal";
+
+    public static final byte START = 1;
+    public static final byte GUESS = 2;
+    public static final byte END   = 3;
+
+    static final int MAGIC          = 0x484A4E4C; // "HJNL"
+    static final int FORMAT_VERSION = 2;
+
+    private static final int        HEADER_BYTES    = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int        V1_HEADER_BYTES = 2 * Integer.BYTES; // magic and version alone
+    private static final int        CHECKPOINT_AT   = 2 * Integer.BYTES; // the offset of the next game ID in the header
+    private static final int        COMMON_BYTES = Byte.BYTES + 2 * Long.BYTES;
+    private static final int        BATCH_BYTES  = 64 * 1024;
+    private static final ByteBuffer CLOSE        = ByteBuffer.allocate(0); // tells the writer to finish up
+
+    private static GameJournal journal; // the journal shared by the application
+
+    private final Path                      path;
+    private final FileChannel               channel;
+    private final BlockingQueue<ByteBuffer> queue;    // encoded records waiting to be written
+    private final Thread                    writer;
+    private final AtomicLong                nextGameId;
+    private final boolean                   checkpointed; // false for a journal of the first version
+    private final Object                    durable;  // notified whenever a batch is forced to disk
+    private long                            appended; // the number of records handed to the writer
+    private long                            written;  // the number of records forced to disk
+    private volatile IOException            failure;  // the error that stopped the writer, if any
+    private volatile boolean                closed;
+
+    /** The header of a journal file. */
+    private static final class Header {
+        private final int  version;
+        private final long records;    // the offset of the first record
+        private final long nextGameId; // a lower bound on the next game ID, from the checkpoint
+        private final long checkpoint; // the offset past which records may not have been read at the last checkpoint
+
+        private Header(int version, long records, long nextGameId, long checkpoint) {
+            this.version = version;
+            this.records = records;
+            this.nextGameId = nextGameId;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    /** Receives the records of a journal, in the order in which they were written. */
+    public interface RecordHandler {
+        default void start(long gameId, long time, int wordIndex, long seed, long position) { }
+
+        default void guess(long gameId, long time, char c, GuessResult result, int wordIndex, int remaining) { }
+
+        default void end(long gameId, long time, boolean won, int wordIndex, int remaining) { }
+    }
+
+    /**
+     * Returns the journal shared by the entire application, opening it the first time it is asked for. This is the
+     * journal named by the {@value #JOURNAL_PROPERTY} system property, or {@value #DEFAULT_JOURNAL} if the property is
+     * not set. Everything in the process that records games must go through this one instance, since two journals
+     * appending to the same file would overwrite each other's records.
+     */
+    public static synchronized GameJournal getJournal() throws IOException {
+        if (journal == null || journal.closed)
+            journal = new GameJournal(Paths.get(System.getProperty(JOURNAL_PROPERTY, DEFAULT_JOURNAL)));
+        return journal;
+    }
+
+    /**
+     * Opens a journal for appending, creating it if it does not exist.
+     *
+     * @param path the journal file
+     * @throws IOException if the file cannot be opened, is not a journal, or holds a damaged record anywhere but at the
+     *                     very end, in which case the file is left exactly as it is
+     */
+    public GameJournal(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                       StandardOpenOption.WRITE);
+        try {
+            long[]        maxGameId = new long[1];
+            RecordHandler ids       = new RecordHandler() {
+                @Override
+                public void start(long gameId, long time, int wordIndex, long seed, long position) {
+                    maxGameId[0] = Math.max(maxGameId[0], gameId);
+                }
+            };
+            long end;
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION)
+                                              .putLong(1L).putLong(HEADER_BYTES);
+                header.flip();
+                while (header.hasRemaining())
+                    channel.write(header);
+                end = HEADER_BYTES;
+                this.checkpointed = true;
+            } else {
+                Header header = readHeader(channel, path);
+                try {
+                    end = scan(channel, path, header.checkpoint, ids);
+                } catch (IOException e) {
+                    if (header.checkpoint == header.records)
+                        throw e;
+                    end = scan(channel, path, header.records, ids); // the checkpoint itself may be what is damaged
+                }
+                if (end < channel.size())
+                    channel.truncate(end); // drop a record that was cut short
+                maxGameId[0] = Math.max(maxGameId[0], header.nextGameId - 1);
+                this.checkpointed = header.version == FORMAT_VERSION;
+            }
+            channel.position(end);
+            this.nextGameId = new AtomicLong(maxGameId[0] + 1);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.queue = new LinkedBlockingQueue<>();
+        this.durable = new Object();
+        this.writer = new Thread(this::writeBatches, "game-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void gameStarted(GameData gamedata) {
+        if (gamedata.getGameId() == 0L)
+            gamedata.setGameId(nextGameId.getAndIncrement());
+        ByteBuffer record = record(START, gamedata.getGameId(), Integer.BYTES + 2 * Long.BYTES);
+        record.putInt(gamedata.getWordIndex()).putLong(gamedata.getSequenceSeed()).putLong(gamedata.getSequencePosition());
+        append(record);
+        // a game picked up from a saved file starts with guesses already made, which a replay has to see as well
+        for (char c : gamedata.getGoodGuesses())
+            guessMade(gamedata, c, GuessResult.GOOD);
+        for (char c : gamedata.getBadGuesses())
+            guessMade(gamedata, c, GuessResult.BAD);
+    }
+
+    @Override
+    public void guessMade(GameData gamedata, char c, GuessResult result) {
+        ByteBuffer record = record(GUESS, gamedata.getGameId(), Character.BYTES + Byte.BYTES + 2 * Integer.BYTES);
+        record.putChar(c).put((byte) result.ordinal()).putInt(gamedata.getWordIndex())
+              .putInt(gamedata.getRemainingGuesses());
+        append(record);
+    }
+
+    @Override
+    public void gameEnded(GameData gamedata, boolean won) {
+        ByteBuffer record = record(END, gamedata.getGameId(), Byte.BYTES + 2 * Integer.BYTES);
+        record.put((byte) (won ? 1 : 0)).putInt(gamedata.getWordIndex()).putInt(gamedata.getRemainingGuesses());
+        append(record);
+    }
+
+    /**
+     * Waits until every event recorded so far is on disk.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void flush() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        synchronized (durable) {
+            while (written < target && failure == null) {
+                try {
+                    durable.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing the game journal.", e);
+                }
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /** Writes out every event recorded so far, and closes the journal. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private static ByteBuffer record(byte type, long gameId, int payload) {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + COMMON_BYTES + payload);
+        record.putInt(COMMON_BYTES + payload).put(type).putLong(gameId).putLong(System.currentTimeMillis());
+        return record;
+    }
+
+    private synchronized void append(ByteBuffer record) {
+        if (closed)
+            throw new IllegalStateException("The game journal is closed.");
+        if (failure != null)
+            return; // the writer has stopped, and the error is reported by flush and close
+        record.flip();
+        queue.add(record);
+        appended++;
+    }
+
+    private void writeBatches() {
+        List<ByteBuffer> pending = new ArrayList<>();
+        ByteBuffer       batch   = ByteBuffer.allocateDirect(BATCH_BYTES);
+        boolean          closing = false;
+        try {
+            while (!closing) {
+                pending.add(queue.take());
+                queue.drainTo(pending);
+                int records = 0;
+                for (ByteBuffer record : pending) {
+                    if (record == CLOSE) {
+                        closing = true;
+                        continue;
+                    }
+                    if (batch.remaining() < record.remaining())
+                        writeFully(batch);
+                    batch.put(record);
+                    records++;
+                }
+                pending.clear();
+                writeFully(batch);
+                channel.force(false);
+                synchronized (durable) {
+                    written += records;
+                    durable.notifyAll();
+                }
+                if (checkpointed)
+                    checkpoint(); // only after the force, so the checkpoint never points past what is on disk
+            }
+            if (checkpointed)
+                channel.force(false); // the last checkpoint
+        } catch (IOException e) {
+            e.printStackTrace();
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new IOException("The game journal was interrupted.", e);
+        } finally {
+            synchronized (durable) {
+                durable.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Records in the header how far the journal is known to be on disk, and the next game ID, so that the next time
+     * the journal is opened, only what comes after needs to be read. The header is forced to disk along with the next
+     * batch.
+     */
+    private void checkpoint() throws IOException {
+        ByteBuffer checkpoint = ByteBuffer.allocate(2 * Long.BYTES);
+        checkpoint.putLong(nextGameId.get()).putLong(channel.position()).flip();
+        for (long at = CHECKPOINT_AT; checkpoint.hasRemaining(); )
+            at += channel.write(checkpoint, at);
+    }
+
+    private void writeFully(ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining())
+            channel.write(batch);
+        batch.clear();
+    }
+
+    /**
+     * Reads every record in a journal, in the order in which they were written. Records are read through a fixed-size
+     * buffer, so a journal of any size can be read in constant memory. Reading stops quietly at a record that runs
+     * past the end of the file, which can only be the last one, cut short as it was being written, and at a tail of
+     * the file that is nothing but zeros.
+     *
+     * @param path    the journal file
+     * @param handler receives the records
+     * @throws IOException if the file cannot be read, is not a journal, or holds a record that is not cut short but
+     *                     cannot be made sense of
+     */
+    public static void read(Path path, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            scan(channel, path, readHeader(channel, path).records, handler);
+        }
+    }
+
+    /**
+     * Rebuilds a game from its events.
+     *
+     * @param path   the journal file
+     * @param gameId the ID of the game
+     * @return the game as it was after its last recorded event, or {@code null} if the journal has no such game
+     * @throws IOException if the journal or the dictionary cannot be read
+     */
+    public static GameData replay(Path path, long gameId) throws IOException {
+        Dictionary dictionary = Dictionary.getDictionary();
+        GameData[] game       = new GameData[1];
+        read(path, new RecordHandler() {
+            @Override
+            public void start(long id, long time, int wordIndex, long seed, long position) {
+                if (id == gameId && wordIndex >= 0)
+                    game[0] = new GameData(dictionary.wordAt(wordIndex)).setWordSequence(wordIndex, seed, position)
+                                                                        .setGameId(gameId);
+            }
+
+            @Override
+            public void guess(long id, long time, char c, GuessResult result, int wordIndex, int remaining) {
+                if (id != gameId || game[0] == null)
+                    return;
+                if (wordIndex != game[0].getWordIndex())
+                    game[0].setTargetWord(dictionary.wordAt(wordIndex))
+                           .setWordSequence(wordIndex, game[0].getSequenceSeed(), game[0].getSequencePosition());
+                game[0].guess(c);
+            }
+        });
+        return game[0];
+    }
+
+    /** Reads the header of a journal, of either version. */
+    private static Header readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        for (long at = 0; header.hasRemaining(); ) {
+            int n = channel.read(header, at);
+            if (n < 0)
+                break;
+            at += n;
+        }
+        header.flip();
+        if (header.remaining() < V1_HEADER_BYTES || header.getInt() != MAGIC)
+            throw new IOException(path + " is not a game journal.");
+        int version = header.getInt();
+        if (version == 1)
+            return new Header(version, V1_HEADER_BYTES, 1L, V1_HEADER_BYTES);
+        if (version != FORMAT_VERSION)
+            throw new IOException(String.format("%s is version %d of the journal format; expected %d.", path, version,
+                                                FORMAT_VERSION));
+        if (header.remaining() < 2 * Long.BYTES)
+            throw new IOException(path + " is not a game journal.");
+        long nextGameId = header.getLong();
+        long checkpoint = header.getLong();
+        if (checkpoint < HEADER_BYTES || checkpoint > channel.size())
+            checkpoint = HEADER_BYTES; // no use, so everything is read
+        return new Header(version, HEADER_BYTES, nextGameId, checkpoint);
+    }
+
+    /**
+     * Reads the records of a journal from the given offset on, which must be the start of a record.
+     *
+     * @return the offset just past the last complete record
+     * @throws IOException if a record that is not cut short cannot be made sense of, since skipping it, or anything
+     *                     after it, would lose records
+     */
+    private static long scan(FileChannel channel, Path path, long from, RecordHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BATCH_BYTES);
+        buffer.limit(0); // nothing read yet
+        channel.position(from);
+
+        long          end     = from;
+        GuessResult[] results = GuessResult.values();
+        while (fill(channel, buffer, Integer.BYTES)) {
+            int length = buffer.getInt();
+            if (length < COMMON_BYTES || length > BATCH_BYTES - Integer.BYTES) {
+                if (isTail(channel, end, length))
+                    break; // the end of the records, followed by what a crash left behind
+                throw unreadable(path, end, "has an impossible length");
+            }
+            if (!fill(channel, buffer, length))
+                break; // the last record, cut short
+            byte type   = buffer.get();
+            long gameId = buffer.getLong();
+            long time   = buffer.getLong();
+            if (type == START && length == COMMON_BYTES + Integer.BYTES + 2 * Long.BYTES) {
+                handler.start(gameId, time, buffer.getInt(), buffer.getLong(), buffer.getLong());
+            } else if (type == GUESS && length == COMMON_BYTES + Character.BYTES + Byte.BYTES + 2 * Integer.BYTES) {
+                char c      = buffer.getChar();
+                int  result = buffer.get();
+                if (result < 0 || result >= results.length)
+                    throw unreadable(path, end, "has an unknown outcome");
+                handler.guess(gameId, time, c, results[result], buffer.getInt(), buffer.getInt());
+            } else if (type == END && length == COMMON_BYTES + Byte.BYTES + 2 * Integer.BYTES) {
+                handler.end(gameId, time, buffer.get() != 0, buffer.getInt(), buffer.getInt());
+            } else {
+                throw unreadable(path, end, String.format("is of unknown type %d, or of the wrong length", type));
+            }
+            end += Integer.BYTES + length;
+        }
+        return end;
+    }
+
+    /**
+     * Tells whether a record with an impossible length is only the leftovers of a crash at the end of the file, rather
+     * than damage with records after it: either the length claims more than the rest of the file, or the rest of the
+     * file, length and all, is nothing but zeros.
+     *
+     * @param start  the offset of the record
+     * @param length the length it claims
+     */
+    private static boolean isTail(FileChannel channel, long start, int length) throws IOException {
+        long size = channel.size();
+        if (length > 0 && start + Integer.BYTES + length > size)
+            return true;
+        ByteBuffer rest = ByteBuffer.allocate(BATCH_BYTES);
+        for (long at = start; at < size; ) {
+            int n = channel.read(rest, at);
+            if (n < 0)
+                break;
+            for (int i = 0; i < n; i++)
+                if (rest.get(i) != 0)
+                    return false;
+            at += n;
+            rest.clear();
+        }
+        return true;
+    }
+
+    private static IOException unreadable(Path path, long offset, String problem) {
+        return new IOException(String.format("The record at byte %d of %s %s; the journal is damaged, or was written "
+                                             + "by a newer version.", offset, path, problem));
+    }
+
+    /**
+     * Makes sure the buffer holds at least the given number of unread bytes, reading more from the channel if needed.
+     *
+     * @return {@code false} if the channel ran out first
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
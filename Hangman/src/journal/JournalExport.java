@@ -0,0 +1,239 @@
+package journal;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import data.Dictionary;
+import engine.HangmanEngine.GuessResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Exports the history of the games in a {@link GameJournal}, one row per game, for analysis outside the application.
+ * Each row gives the game's ID, its target word, the characters guessed in the order they were guessed, its outcome, and
+ * how long it lasted in milliseconds. Files with the extension {@value #CSV_EXTENSION} are written as CSV with a header
+ * row, and any other file as JSON Lines:
+ * <pre>
+ *     {"id":17,"word":"hangman","guesses":"eanhgm","outcome":"won","duration":48213}
+ * </pre>
+ * The journal is read record by record and the rows are written as each game ends, so an export of any size runs in
+ * constant memory. Games from different sessions are interleaved in the journal, so the games still in progress at any
+ * point are held aside, up to {@value #MAX_OPEN_GAMES} of them; past that, the game that has been open the longest is
+ * written out as {@value #UNFINISHED}, as is every game that never ends by the end of the journal.
+ *
+ * @author Ritwik Banerjee
+ */
+public final class JournalExport {
+
+    public static final String CSV_EXTENSION = "csv";
+    public static final String WON           = "won";
+    public static final String LOST          = "lost";
+    public static final String UNFINISHED    = "unfinished";
+
+    static final int MAX_OPEN_GAMES = 1 << 16;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String      CSV_HEADER   = "id,word,guesses,outcome,duration";
+
+    /** A game that has started, but whose row has not been written yet. */
+    private static final class OpenGame {
+        private final long          gameId;
+        private final long          started;
+        private final StringBuilder guesses = new StringBuilder();
+        private int                 wordIndex;
+        private long                lastEvent;
+
+        private OpenGame(long gameId, long started, int wordIndex) {
+            this.gameId = gameId;
+            this.started = started;
+            this.wordIndex = wordIndex;
+            this.lastEvent = started;
+        }
+    }
+
+    /** Writes the rows of the export, in one format or the other. */
+    private interface RowWriter {
+        void write(long gameId, String word, CharSequence guesses, String outcome, long duration) throws IOException;
+
+        /** Pushes out anything the row writer holds on to, once every row is written. */
+        void finish() throws IOException;
+    }
+
+    /** Turns the records of a journal into rows, one game at a time. */
+    private static final class Exporter implements GameJournal.RecordHandler {
+        private final RowWriter                     rows;
+        private final Dictionary                    dictionary;
+        private final LinkedHashMap<Long, OpenGame> open;  // the games started but not yet ended, oldest first
+        private int                                 count; // the number of rows written
+
+        private Exporter(RowWriter rows, Dictionary dictionary) {
+            this.rows = rows;
+            this.dictionary = dictionary;
+            this.open = new LinkedHashMap<>();
+        }
+
+        @Override
+        public void start(long gameId, long time, int wordIndex, long seed, long position) {
+            OpenGame previous = open.put(gameId, new OpenGame(gameId, time, wordIndex));
+            if (previous != null)
+                writeUnchecked(previous, UNFINISHED, previous.lastEvent);
+            if (open.size() > MAX_OPEN_GAMES) {
+                Iterator<OpenGame> oldest = open.values().iterator();
+                OpenGame           game   = oldest.next();
+                oldest.remove();
+                writeUnchecked(game, UNFINISHED, game.lastEvent);
+            }
+        }
+
+        @Override
+        public void guess(long gameId, long time, char c, GuessResult result, int wordIndex, int remaining) {
+            OpenGame game = open.get(gameId);
+            if (game == null)
+                return; // already written out as unfinished
+            game.guesses.append(c);
+            game.wordIndex = wordIndex;
+            game.lastEvent = time;
+        }
+
+        @Override
+        public void end(long gameId, long time, boolean won, int wordIndex, int remaining) {
+            OpenGame game = open.remove(gameId);
+            if (game == null)
+                return;
+            game.wordIndex = wordIndex;
+            writeUnchecked(game, won ? WON : LOST, time);
+        }
+
+        /** Writes out the games that never ended. */
+        private void finish() throws IOException {
+            for (OpenGame game : open.values())
+                write(game, UNFINISHED, game.lastEvent);
+            open.clear();
+            rows.finish();
+        }
+
+        private void write(OpenGame game, String outcome, long time) throws IOException {
+            String word = game.wordIndex >= 0 && game.wordIndex < dictionary.size()
+                          ? dictionary.wordAt(game.wordIndex) : "";
+            rows.write(game.gameId, word, game.guesses, outcome, time - game.started);
+            count++;
+        }
+
+        /** Writes a row from within a record handler method, which cannot throw an {@link IOException} itself. */
+        private void writeUnchecked(OpenGame game, String outcome, long time) {
+            try {
+                write(game, outcome, time);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private JournalExport() { }
+
+    /**
+     * Exports every game in a journal.
+     *
+     * @param journal the journal file
+     * @param to      the file to export to, as CSV or JSON Lines going by its extension
+     * @return the number of games exported
+     * @throws IOException if the journal or the dictionary cannot be read, or the export cannot be written
+     */
+    public static int export(Path journal, Path to) throws IOException {
+        Dictionary dictionary = Dictionary.getDictionary();
+        try (Writer out = Files.newBufferedWriter(to, StandardCharsets.UTF_8)) {
+            Exporter exporter = new Exporter(isCsv(to) ? csv(out) : jsonLines(out), dictionary);
+            try {
+                GameJournal.read(journal, exporter);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            exporter.finish();
+            return exporter.count;
+        }
+    }
+
+    /**
+     * @param file an export file
+     * @return {@code true} if the file is to be written as CSV, going by its extension
+     */
+    public static boolean isCsv(Path file) {
+        Path name = file.getFileName();
+        return name != null && name.toString().toLowerCase().endsWith("." + CSV_EXTENSION);
+    }
+
+    private static RowWriter csv(Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        return new RowWriter() {
+            @Override
+            public void write(long gameId, String word, CharSequence guesses, String outcome, long duration)
+                    throws IOException {
+                out.write(Long.toString(gameId));
+                out.write(',');
+                writeField(word);
+                out.write(',');
+                writeField(guesses);
+                out.write(',');
+                out.write(outcome);
+                out.write(',');
+                out.write(Long.toString(duration));
+                out.write('\n');
+            }
+
+            /** Writes a field, quoting it if it holds anything that CSV gives a meaning to. */
+            private void writeField(CharSequence field) throws IOException {
+                boolean quote = false;
+                for (int i = 0; i < field.length() && !quote; i++) {
+                    char c = field.charAt(i);
+                    quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+                }
+                if (!quote) {
+                    out.append(field);
+                    return;
+                }
+                out.write('"');
+                for (int i = 0; i < field.length(); i++) {
+                    char c = field.charAt(i);
+                    if (c == '"')
+                        out.write('"');
+                    out.write(c);
+                }
+                out.write('"');
+            }
+
+            @Override
+            public void finish() { }
+        };
+    }
+
+    private static RowWriter jsonLines(Writer out) throws IOException {
+        JsonGenerator json = JSON_FACTORY.createGenerator(out);
+        json.setRootValueSeparator(null); // each row ends its own line instead
+        return new RowWriter() {
+            @Override
+            public void write(long gameId, String word, CharSequence guesses, String outcome, long duration)
+                    throws IOException {
+                json.writeStartObject();
+                json.writeNumberField("id", gameId);
+                json.writeStringField("word", word);
+                json.writeStringField("guesses", guesses.toString());
+                json.writeStringField("outcome", outcome);
+                json.writeNumberField("duration", duration);
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            @Override
+            public void finish() throws IOException {
+                json.flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,301 @@
+package server;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import data.Dictionary;
+import data.GameData;
+import data.WordSequencer;
+import engine.EvilHangmanEngine;
+import engine.GameListener;
+import engine.HangmanEngine;
+import engine.HangmanEngine.GuessResult;
+import journal.GameJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts any number of concurrent Hangman games over HTTP, without a user interface. Every response is a JSON object
+ * describing the state of one game. The endpoints are:
+ * <ul>
+ * <li>{@code POST /start}, to start a new game in a new session, or {@code POST /start?mode=evil} to start one played
+ * by an {@link EvilHangmanEngine},</li>
+ * <li>{@code POST /guess?session=<id>&letter=<c>}, to make a guess in a session,</li>
+ * <li>{@code GET /state?session=<id>}, to look at a session's game without changing it, and</li>
+ * <li>{@code POST /end?session=<id>}, to end a session.</li>
+ * </ul>
+ * A request for any other path is answered with status 404, one with a malformed query with status 400, and one that
+ * fails within the server with status 500, all with an {@code "error"} message in place of a game. Sessions in which no
+ * request has been made for {@link #SESSION_IDLE_MINUTES} minutes are ended automatically. The server only listens on
+ * the loopback address unless it is given another address to bind to.
+ * Every game is recorded in the {@link GameJournal} named by the {@value GameJournal#JOURNAL_PROPERTY} system
+ * property, unless the journal cannot be opened, in which case the server runs without one.
+ *
+ * @author Ritwik Banerjee
+ */
+public class HangmanServer {
+
+    public static final int DEFAULT_PORT         = 8080;
+    public static final int SESSION_IDLE_MINUTES = 30;
+
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer               server;
+    private final ExecutorService          handlers;  // runs the request handlers
+    private final ScheduledExecutorService janitor;   // ends idle sessions
+    private final SessionRegistry          sessions;
+    private final JsonFactory              jsonFactory;
+    private final Dictionary               dictionary;
+    private final WordSequencer            sequencer; // the order in which words are handed out to new sessions
+    private final AtomicLong               position;  // the position in the sequence of the next word to hand out
+    private final GameListener             journal;   // records every game played, if it could be opened
+
+    /**
+     * @param port the port to listen on, on the loopback address
+     */
+    public HangmanServer(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * @param address the address to listen on, or the wildcard address to listen on every interface
+     * @param port    the port to listen on
+     */
+    public HangmanServer(InetAddress address, int port) throws IOException {
+        this.journal = openJournal();
+        this.dictionary = Dictionary.getDictionary();
+        this.sequencer = new WordSequencer(ThreadLocalRandom.current().nextLong(), 0, dictionary.size());
+        this.position = new AtomicLong();
+        this.sessions = new SessionRegistry();
+        this.jsonFactory = new JsonFactory();
+
+        this.server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+        this.server.createContext("/start", exchange -> handle(exchange, "POST", this::start));
+        this.server.createContext("/guess", exchange -> handle(exchange, "POST", this::guess));
+        this.server.createContext("/state", exchange -> handle(exchange, "GET", this::state));
+        this.server.createContext("/end", exchange -> handle(exchange, "POST", this::end));
+
+        // handlers never block on anything but their own session, so one thread per core keeps every core busy
+        this.handlers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemon("hangman-http"));
+        this.server.setExecutor(handlers);
+        this.janitor = Executors.newSingleThreadScheduledExecutor(daemon("hangman-janitor"));
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param args the port to listen on, and optionally the host name or address to bind to, which is the loopback
+     *             address if none is given
+     */
+    public static void main(String[] args) throws IOException {
+        int           port    = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress   address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        HangmanServer server  = new HangmanServer(address, port);
+        server.start();
+        System.out.println(String.format("Hangman server listening on %s, port %d.", address.getHostAddress(), port));
+    }
+
+    public void start() {
+        long idle = TimeUnit.MINUTES.toNanos(SESSION_IDLE_MINUTES);
+        janitor.scheduleWithFixedDelay(() -> sessions.evictIdle(idle), 1, 1, TimeUnit.MINUTES);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        janitor.shutdownNow();
+        handlers.shutdownNow();
+        try {
+            if (journal instanceof GameJournal)
+                ((GameJournal) journal).close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Opens the shared journal, carrying on without one if it cannot be opened, so that games can still be played. */
+    private static GameListener openJournal() {
+        try {
+            return GameJournal.getJournal();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return GameListener.NONE;
+        }
+    }
+
+    public SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    /** Produces the JSON body of a response, given the query parameters of the request. */
+    private interface Endpoint {
+        int respond(Map<String, String> parameters, JsonGenerator json) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+            int                   status;
+            try {
+                status = respond(exchange, method, endpoint, body);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                body.reset(); // whatever the endpoint wrote before it failed
+                try (JsonGenerator json = jsonFactory.createGenerator(body, JsonEncoding.UTF8)) {
+                    status = error(json, 500, "The request could not be completed.");
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                body.writeTo(out);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** Writes the response to a request into the given body, and returns its status. */
+    private int respond(HttpExchange exchange, String method, Endpoint endpoint, ByteArrayOutputStream body)
+            throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(body, JsonEncoding.UTF8)) {
+            // a context takes every path it is a prefix of, so that /startXYZ and /start/x would reach /start
+            if (!exchange.getHttpContext().getPath().equals(exchange.getRequestURI().getPath()))
+                return error(json, 404, "No such endpoint.");
+            if (!method.equals(exchange.getRequestMethod()))
+                return error(json, 405, "Use " + method + " for this endpoint.");
+            Map<String, String> parameters;
+            try {
+                parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                return error(json, 400, "Malformed query: " + e.getMessage());
+            }
+            return endpoint.respond(parameters, json);
+        }
+    }
+
+    private int start(Map<String, String> parameters, JsonGenerator json) throws IOException {
+        long     next     = position.getAndIncrement();
+        int      index    = sequencer.indexAt(next);
+        GameData gamedata = new GameData(dictionary.wordAt(index)).setWordSequence(index, sequencer.getSeed(), next);
+        HangmanEngine engine;
+        if ("evil".equals(parameters.get("mode")))
+            engine = new EvilHangmanEngine(dictionary, gamedata, journal);
+        else if (parameters.get("mode") == null || "normal".equals(parameters.get("mode")))
+            engine = new HangmanEngine(gamedata, journal);
+        else
+            return error(json, 400, "Unknown mode.");
+        SessionRegistry.Session session = sessions.create(engine);
+        synchronized (session) {
+            writeState(json, session, null);
+        }
+        return 200;
+    }
+
+    private int guess(Map<String, String> parameters, JsonGenerator json) throws IOException {
+        SessionRegistry.Session session = sessions.get(parameters.get("session"));
+        if (session == null)
+            return error(json, 404, "No such session.");
+        String letter = parameters.get("letter");
+        if (letter == null || letter.length() != 1)
+            return error(json, 400, "Guess exactly one letter.");
+        synchronized (session) {
+            GuessResult result = session.getEngine().guess(Character.toLowerCase(letter.charAt(0)));
+            writeState(json, session, result);
+        }
+        return 200;
+    }
+
+    private int state(Map<String, String> parameters, JsonGenerator json) throws IOException {
+        SessionRegistry.Session session = sessions.get(parameters.get("session"));
+        if (session == null)
+            return error(json, 404, "No such session.");
+        synchronized (session) {
+            writeState(json, session, null);
+        }
+        return 200;
+    }
+
+    private int end(Map<String, String> parameters, JsonGenerator json) throws IOException {
+        SessionRegistry.Session session = sessions.remove(parameters.get("session"));
+        if (session == null)
+            return error(json, 404, "No such session.");
+        synchronized (session) {
+            writeState(json, session, null);
+        }
+        return 200;
+    }
+
+    private static void writeState(JsonGenerator json, SessionRegistry.Session session, GuessResult result)
+            throws IOException {
+        HangmanEngine engine   = session.getEngine();
+        GameData      gamedata = engine.getGameData();
+        String        word     = gamedata.getTargetWord();
+        long          revealed = gamedata.getRevealedPositions();
+        char[]        pattern  = new char[word.length()];
+        for (int i = 0; i < pattern.length; i++)
+            pattern[i] = (revealed & (1L << i)) != 0 ? word.charAt(i) : '_';
+
+        json.writeStartObject();
+        json.writeStringField("session", session.getId());
+        if (result != null)
+            json.writeStringField("result", result.name());
+        json.writeFieldName("pattern");
+        json.writeString(pattern, 0, pattern.length);
+        json.writeNumberField("remaining", engine.getRemainingGuesses());
+        json.writeArrayFieldStart("misses");
+        for (char c : gamedata.getBadGuesses())
+            json.writeString(String.valueOf(c));
+        json.writeEndArray();
+        json.writeStringField("status", engine.isWon() ? "WON" : engine.isLost() ? "LOST" : "IN_PROGRESS");
+        if (engine.isOver())
+            json.writeStringField("word", word);
+        json.writeEndObject();
+    }
+
+    private static int error(JsonGenerator json, int status, String message) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("error", message);
+        json.writeEndObject();
+        return status;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null)
+            return parameters;
+        for (String pair : query.split("&")) {
+            int split = pair.indexOf('=');
+            if (split > 0)
+                parameters.put(URLDecoder.decode(pair.substring(0, split), "UTF-8"),
+                               URLDecoder.decode(pair.substring(split + 1), "UTF-8"));
+        }
+        return parameters;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
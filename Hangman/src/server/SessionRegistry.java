@@ -0,0 +1,117 @@
+package server;
+
+import data.GameData;
+import engine.HangmanEngine;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The games being played on a {@link HangmanServer}, keyed by session ID. Lookups never block, and updates only ever
+ * contend with other updates to the same bin of the underlying map, so the registry scales with the number of handler
+ * threads. Each session is guarded by its own monitor, so that play in one session never waits on another.
+ *
+ * @author Ritwik Banerjee
+ */
+public class SessionRegistry {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    // a session ID is all it takes to play in a session, so no ID may be predictable from any other
+    private static final SecureRandom IDS = new SecureRandom();
+
+    private final ConcurrentHashMap<String, Session> sessions;
+
+    /** A single game in progress. Synchronize on the session while playing or reading its game. */
+    public static final class Session {
+        private final String        id;
+        private final HangmanEngine engine;
+        private volatile long       lastAccess; // System.nanoTime() of the last request made in this session
+
+        private Session(String id, HangmanEngine engine) {
+            this.id = id;
+            this.engine = engine;
+            this.lastAccess = System.nanoTime();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public HangmanEngine getEngine() {
+            return engine;
+        }
+    }
+
+    public SessionRegistry() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.sessions = new ConcurrentHashMap<>(INITIAL_CAPACITY, 0.75f, processors);
+    }
+
+    /**
+     * Registers a new session for the given game.
+     *
+     * @param gamedata the game to be played in the session
+     * @return the new session
+     */
+    public Session create(GameData gamedata) {
+        return create(new HangmanEngine(gamedata));
+    }
+
+    /**
+     * Registers a new session for the game held by the given engine.
+     *
+     * @param engine the engine with which the game in the session is played
+     * @return the new session
+     */
+    public Session create(HangmanEngine engine) {
+        while (true) {
+            String  id      = String.format("%016x", IDS.nextLong());
+            Session session = new Session(id, engine);
+            if (sessions.putIfAbsent(id, session) == null)
+                return session;
+        }
+    }
+
+    /**
+     * @param id a session ID
+     * @return the session with the given ID, or {@code null} if there is no such session
+     */
+    public Session get(String id) {
+        Session session = id == null ? null : sessions.get(id);
+        if (session != null)
+            session.lastAccess = System.nanoTime();
+        return session;
+    }
+
+    /**
+     * @param id a session ID
+     * @return the session that was removed, or {@code null} if there was no session with the given ID
+     */
+    public Session remove(String id) {
+        return id == null ? null : sessions.remove(id);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes every session in which no request has been made for a while.
+     *
+     * @param idleNanos how long a session may go without a request before it is removed, in nanoseconds
+     * @return the number of sessions removed
+     */
+    public int evictIdle(long idleNanos) {
+        long now     = System.nanoTime();
+        int  evicted = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastAccess > idleNanos) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
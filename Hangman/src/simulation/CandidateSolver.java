@@ -0,0 +1,283 @@
+package simulation;
+
+import data.GameData;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Guesses by keeping track of every word in the dictionary that is still consistent with the game so far, and then
+ * guessing the letter that tells it the most about which of those words is the target. The candidates are held as a
+ * bitset over the words of the target's length, and are narrowed with the bitsets of a {@link PositionalIndex} each
+ * time a guess comes back:
+ * <ul>
+ * <li>a bad guess removes every word containing the letter;</li>
+ * <li>a good guess keeps only the words with the letter at every revealed position, and not at any other position;</li>
+ * <li>a revealed character other than 'a' to 'z' keeps only the words with some such character at that position.</li>
+ * </ul>
+ * Longs of the bitset that have gone to zero are dropped from further work, so each guess costs less than the last.
+ * <p>
+ * The answer to a guess is not just whether the letter is in the target, but the exact positions at which it is
+ * revealed. Each letter therefore splits the remaining candidates into groups, one for every pattern of positions the
+ * letter occupies in them, along with a group for the candidates without it. The letter guessed is the one whose split
+ * has the highest entropy, i.e. the one whose answer is expected to tell the most about which candidate is the target,
+ * ties going to the letter found in more candidates. If none of the candidates has a letter left to guess, a character
+ * is taken from the first candidate; if there are no candidates at all, because the target is not in the dictionary,
+ * the solver falls back to a {@link FrequencyGuesser}.
+ * <p>
+ * Working out the split of every letter means looking at every candidate, which is costly early in a game, when
+ * there are many. But every game of a given length opens with the same candidates, and the few answers to its first
+ * guesses lead to the same candidates again, so the letter picked when more than {@link #SHARED_CANDIDATES} candidates
+ * remain is kept in a table of openings, under what the player has seen so far. Solvers made with the same table share
+ * their openings.
+ *
+ * @author Ritwik Banerjee
+ */
+public class CandidateSolver implements Guesser {
+
+    /** The number of candidates above which the letter picked is kept in the table of openings. */
+    public static final int SHARED_CANDIDATES = 256;
+
+    private final PositionalIndex  index;
+    private final FrequencyGuesser fallback;
+    private final long[]           candidates;    // bit j is set if the j-th word of the target's length is possible
+    private final int[]            active;        // the longs of the candidate bitset that may still be nonzero
+    private int                    length;        // the length of the target word
+    private int                    blocks;        // the number of entries of active in use
+    private int                    appliedGood;   // the good letter guesses already applied to the candidates
+    private int                    appliedBad;    // the bad letter guesses already applied to the candidates
+    private long                   appliedOthers; // revealed positions of non-letters already applied to the candidates
+    private final int[]            counts;        // counts[k] is the number of candidates containing the letter 'a' + k
+    private final int[]            starts;        // where the patterns of the letter 'a' + k start in patterns
+    private final long[]           masks;         // the positions of each letter in the candidate being looked at
+    private long[]                 patterns;      // the positions of each letter in every candidate, grouped by letter
+
+    private final ConcurrentMap<String, Character> openings; // the letter picked, by what the player had seen
+
+    public CandidateSolver(PositionalIndex index) {
+        this(index, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param index    the index of the dictionary the target words are drawn from
+     * @param openings the letters picked early in games, shared with other solvers for the same index
+     */
+    public CandidateSolver(PositionalIndex index, ConcurrentMap<String, Character> openings) {
+        int largest = 0;
+        for (int n = 0; n <= index.maxLength(); n++)
+            largest = Math.max(largest, index.countOfLength(n));
+        this.index = index;
+        this.fallback = new FrequencyGuesser();
+        this.openings = openings;
+        this.candidates = new long[PositionalIndex.blocks(largest)];
+        this.active = new int[candidates.length];
+        this.counts = new int[26];
+        this.starts = new int[27];
+        this.masks = new long[26];
+        this.patterns = new long[0];
+    }
+
+    @Override
+    public void newGame(GameData gamedata) {
+        length = gamedata.getTargetWord().length();
+        int count = index.countOfLength(length);
+        blocks = PositionalIndex.blocks(count);
+        Arrays.fill(candidates, 0, blocks, -1L);
+        if ((count & 63) != 0)
+            candidates[blocks - 1] = (1L << count) - 1;
+        for (int b = 0; b < blocks; b++)
+            active[b] = b;
+        appliedGood = 0;
+        appliedBad = 0;
+        appliedOthers = 0L;
+    }
+
+    @Override
+    public char nextGuess(GameData gamedata) {
+        if (blocks == 0)
+            return unguessedCharacterOfFirstCandidate(gamedata);
+        narrow(gamedata);
+
+        int total = 0;
+        for (int a = 0; a < blocks; a++)
+            total += Long.bitCount(candidates[active[a]]);
+        if (total == 0)
+            return fallback.nextGuess(gamedata);
+        if (total <= SHARED_CANDIDATES)
+            return pick(gamedata, total);
+        String    seen    = seen(gamedata);
+        Character opening = openings.get(seen);
+        if (opening == null) {
+            opening = pick(gamedata, total);
+            openings.putIfAbsent(seen, opening);
+        }
+        return opening;
+    }
+
+    /** @return the letter whose split of the candidates has the highest entropy */
+    private char pick(GameData gamedata, int total) {
+        int guessed = gamedata.getGoodGuessMask() | gamedata.getBadGuessMask();
+        int size    = 0;
+        for (int k = 0; k < 26; k++) {
+            int count = 0;
+            if ((guessed & (1 << k)) == 0) {
+                long[] containing = index.wordsContaining(length, k);
+                for (int a = 0; a < blocks; a++) {
+                    int b = active[a];
+                    count += Long.bitCount(candidates[b] & containing[b]);
+                }
+            }
+            counts[k] = count;
+            starts[k] = size;
+            size += count;
+        }
+        starts[26] = size;
+        collectPatterns(gamedata, size);
+
+        int    best      = -1;
+        int    bestCount = 0;
+        double bestScore = -1;
+        for (int k = 0; k < 26; k++) {
+            if ((guessed & (1 << k)) != 0)
+                continue;
+            double score = entropy(starts[k], starts[k + 1], total);
+            if (score > bestScore || (score == bestScore && counts[k] > bestCount)) {
+                best = k;
+                bestCount = counts[k];
+                bestScore = score;
+            }
+        }
+        if (bestCount > 0)
+            return (char) ('a' + best);
+        return unguessedCharacterOfFirstCandidate(gamedata);
+    }
+
+    /** @return what the player has seen of the game: the word with its hidden characters blanked, and the bad guesses */
+    private static String seen(GameData gamedata) {
+        String        target   = gamedata.getTargetWord();
+        long          revealed = gamedata.getRevealedPositions();
+        StringBuilder seen     = new StringBuilder(target.length() + 8);
+        for (int p = 0; p < target.length(); p++)
+            seen.append((revealed & (1L << p)) != 0 ? target.charAt(p) : '_');
+        return seen.append('/').append(Integer.toHexString(gamedata.getBadGuessMask())).toString();
+    }
+
+    /**
+     * Fills in the positions of every unguessed letter in every candidate containing it, so that the patterns of the
+     * letter 'a' + k run from {@code starts[k]} to {@code starts[k + 1]}. Since the candidates fit the game so far,
+     * unguessed letters are only ever found at positions that have not been revealed.
+     */
+    private void collectPatterns(GameData gamedata, int size) {
+        if (patterns.length < size)
+            patterns = new long[Math.max(size, patterns.length * 2)];
+        long hidden  = ~gamedata.getRevealedPositions();
+        int  guessed = gamedata.getGoodGuessMask() | gamedata.getBadGuessMask();
+        for (int a = 0; a < blocks; a++) {
+            int b = active[a];
+            for (long bits = candidates[b]; bits != 0; bits &= bits - 1) {
+                int word    = index.wordIndex(length, (b << 6) + Long.numberOfTrailingZeros(bits));
+                int letters = 0;
+                for (int p = 0; p < length; p++) {
+                    int k = PositionalIndex.symbolOf(index.getDictionary().charAt(word, p));
+                    if ((hidden & (1L << p)) != 0 && k != PositionalIndex.OTHER && (guessed & (1 << k)) == 0) {
+                        masks[k] |= 1L << p;
+                        letters |= 1 << k;
+                    }
+                }
+                for (; letters != 0; letters &= letters - 1) {
+                    int k = Integer.numberOfTrailingZeros(letters);
+                    patterns[starts[k] + --counts[k]] = masks[k];
+                    masks[k] = 0L;
+                }
+            }
+        }
+        for (int k = 0; k < 26; k++)
+            counts[k] = starts[k + 1] - starts[k];
+    }
+
+    /** Applies every guess made since the last call to the candidates. */
+    private void narrow(GameData gamedata) {
+        for (int bad = gamedata.getBadGuessMask() & ~appliedBad; bad != 0; bad &= bad - 1)
+            andNot(index.wordsContaining(length, Integer.numberOfTrailingZeros(bad)));
+        appliedBad = gamedata.getBadGuessMask();
+
+        long letterPositions = 0L;
+        for (int good = gamedata.getGoodGuessMask(); good != 0; good &= good - 1) {
+            int  k         = Integer.numberOfTrailingZeros(good);
+            long positions = gamedata.positionsOf((char) ('a' + k));
+            letterPositions |= positions;
+            if ((appliedGood & (1 << k)) != 0)
+                continue;
+            for (int p = 0; p < length; p++) {
+                if ((positions & (1L << p)) != 0)
+                    and(index.wordsWith(length, p, k));
+                else
+                    andNot(index.wordsWith(length, p, k));
+            }
+        }
+        appliedGood = gamedata.getGoodGuessMask();
+
+        long others = gamedata.getRevealedPositions() & ~letterPositions & ~appliedOthers;
+        for (long p = others; p != 0; p &= p - 1)
+            and(index.wordsWith(length, Long.numberOfTrailingZeros(p), PositionalIndex.OTHER));
+        appliedOthers |= others;
+
+        int kept = 0;
+        for (int a = 0; a < blocks; a++)
+            if (candidates[active[a]] != 0L)
+                active[kept++] = active[a];
+        blocks = kept;
+    }
+
+    private char unguessedCharacterOfFirstCandidate(GameData gamedata) {
+        for (int a = 0; a < blocks; a++) {
+            int b = active[a];
+            if (candidates[b] == 0L)
+                continue;
+            int  word     = index.wordIndex(length, (b << 6) + Long.numberOfTrailingZeros(candidates[b]));
+            long revealed = gamedata.getRevealedPositions();
+            for (int p = 0; p < length; p++) {
+                char c = index.getDictionary().charAt(word, p);
+                if ((revealed & (1L << p)) == 0 && !gamedata.isGuessed(c))
+                    return c;
+            }
+            break;
+        }
+        return fallback.nextGuess(gamedata);
+    }
+
+    private void and(long[] words) {
+        for (int a = 0; a < blocks; a++)
+            candidates[active[a]] &= words[active[a]];
+    }
+
+    private void andNot(long[] words) {
+        for (int a = 0; a < blocks; a++)
+            candidates[active[a]] &= ~words[active[a]];
+    }
+
+    /**
+     * @return the entropy, in bits, of the split of {@code total} candidates by the patterns from {@code from} to
+     *         {@code to}, the candidates with no pattern there making up a group of their own
+     */
+    private double entropy(int from, int to, int total) {
+        Arrays.sort(patterns, from, to);
+        double sum = 0;
+        for (int i = from; i < to; ) {
+            int j = i + 1;
+            while (j < to && patterns[j] == patterns[i])
+                j++;
+            sum += plogp(j - i, total);
+            i = j;
+        }
+        return (sum + plogp(total - (to - from), total)) / -Math.log(2);
+    }
+
+    private static double plogp(int count, int total) {
+        if (count == 0)
+            return 0;
+        double p = (double) count / total;
+        return p * Math.log(p);
+    }
+}
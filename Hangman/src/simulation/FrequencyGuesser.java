@@ -0,0 +1,24 @@
+package simulation;
+
+import data.GameData;
+
+/**
+ * Guesses letters in order of how often they appear in English words, most frequent first, paying no attention to
+ * anything revealed so far. This is the baseline against which smarter guessers are measured.
+ *
+ * @author Ritwik Banerjee
+ */
+public class FrequencyGuesser implements Guesser {
+
+    public static final String LETTERS_BY_FREQUENCY = "esiarntolcdupmghbyfvkwzxqj";
+
+    @Override
+    public char nextGuess(GameData gamedata) {
+        for (int i = 0; i < LETTERS_BY_FREQUENCY.length(); i++) {
+            char c = LETTERS_BY_FREQUENCY.charAt(i);
+            if (!gamedata.isGuessed(c))
+                return c;
+        }
+        return '\'';
+    }
+}
@@ -0,0 +1,26 @@
+package simulation;
+
+import data.GameData;
+
+/**
+ * A strategy for playing Hangman without a human player. A guesser may only base its guesses on what a player could
+ * see: the length of the target word, the positions revealed by its good guesses, and its bad guesses. A guesser may
+ * keep state from one guess to the next, so each thread playing games needs its own instance.
+ *
+ * @author Ritwik Banerjee
+ */
+public interface Guesser {
+
+    /**
+     * Called before the first guess of every game.
+     *
+     * @param gamedata the game about to be played
+     */
+    default void newGame(GameData gamedata) { }
+
+    /**
+     * @param gamedata the game being played
+     * @return the next character to guess
+     */
+    char nextGuess(GameData gamedata);
+}
@@ -0,0 +1,107 @@
+package simulation;
+
+import data.Dictionary;
+
+/**
+ * An inverted index of a {@link Dictionary} by letter and position. Words are grouped by length, and within each group
+ * every (position, letter) pair maps to a bitset of the words in the group with that letter at that position, where
+ * bit j stands for the j-th word of the group. A second table maps every letter to the bitset of words in the group
+ * that contain it anywhere. Narrowing a set of candidate words down to those that fit what has been revealed so far is
+ * then just a matter of ANDing bitsets together, and no word ever has to be looked at character by character.
+ * <p>
+ * Characters other than 'a' to 'z' all share the single symbol {@link #OTHER}. An index is never modified once built,
+ * so it may be shared by any number of threads.
+ *
+ * @author Ritwik Banerjee
+ */
+public final class PositionalIndex {
+
+    /** The symbol under which every character other than 'a' to 'z' is indexed. */
+    public static final int OTHER   = 26;
+    public static final int SYMBOLS = OTHER + 1;
+
+    private final Dictionary   dictionary;
+    private final int[][]      words;    // words[n][j] is the position in the dictionary of the j-th word of length n
+    private final long[][][]   at;       // at[n][p * SYMBOLS + s] is the set of words of length n with symbol s at p
+    private final long[][][]   contains; // contains[n][k] is the set of words of length n containing the letter 'a' + k
+
+    public PositionalIndex(Dictionary dictionary) {
+        int maxLength = dictionary.maxLength();
+        this.dictionary = dictionary;
+        this.words = new int[maxLength + 1][];
+        this.at = new long[maxLength + 1][][];
+        this.contains = new long[maxLength + 1][][];
+        for (int n = 0; n <= maxLength; n++) {
+            int count  = dictionary.countOfLength(n);
+            int blocks = blocks(count);
+            words[n] = new int[count];
+            at[n] = new long[n * SYMBOLS][blocks];
+            contains[n] = new long[26][blocks];
+        }
+
+        int[] filled = new int[maxLength + 1];
+        for (int i = 0; i < dictionary.size(); i++) {
+            int  n     = dictionary.lengthOf(i);
+            int  j     = filled[n]++;
+            int  block = j >>> 6;
+            long bit   = 1L << j;
+            words[n][j] = i;
+            for (int p = 0; p < n; p++)
+                at[n][p * SYMBOLS + symbolOf(dictionary.charAt(i, p))][block] |= bit;
+            for (int mask = dictionary.letterMaskOf(i); mask != 0; mask &= mask - 1)
+                contains[n][Integer.numberOfTrailingZeros(mask)][block] |= bit;
+        }
+    }
+
+    /**
+     * @param c a character
+     * @return the symbol under which the character is indexed
+     */
+    public static int symbolOf(char c) {
+        return c >= 'a' && c <= 'z' ? c - 'a' : OTHER;
+    }
+
+    /**
+     * @param count a number of words
+     * @return the number of longs in a bitset over that many words
+     */
+    public static int blocks(int count) {
+        return (count + Long.SIZE - 1) >>> 6;
+    }
+
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /** @return the length of the longest word in the index */
+    public int maxLength() {
+        return words.length - 1;
+    }
+
+    /**
+     * @param length a word length
+     * @return the number of words of that length
+     */
+    public int countOfLength(int length) {
+        return length < words.length ? words[length].length : 0;
+    }
+
+    /**
+     * @param length a word length
+     * @param j      a bit in a bitset over the words of that length
+     * @return the position in the dictionary of the word that the bit stands for
+     */
+    public int wordIndex(int length, int j) {
+        return words[length][j];
+    }
+
+    /** @return the words of the given length with the given symbol at the given position; do not modify */
+    long[] wordsWith(int length, int position, int symbol) {
+        return at[length][position * SYMBOLS + symbol];
+    }
+
+    /** @return the words of the given length that contain the letter 'a' + {@code letter}; do not modify */
+    long[] wordsContaining(int length, int letter) {
+        return contains[length][letter];
+    }
+}
@@ -0,0 +1,126 @@
+package simulation;
+
+import data.Dictionary;
+import data.GameData;
+import engine.HangmanEngine;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays a game for every word in a dictionary, with a given guessing strategy, and tallies the outcomes by word length.
+ * The dictionary is split into ranges of words that are played in parallel on a {@link ForkJoinPool}; each range is
+ * played by its own engine and guesser into its own {@link SimulationResult}, and the results are merged as the ranges
+ * are joined. Games are played by the same rules as in the GUI, including the limit of
+ * {@link GameData#TOTAL_NUMBER_OF_GUESSES_ALLOWED} bad guesses.
+ * <p>
+ * Usage: {@code java simulation.SelfPlaySimulation [frequency|candidates]}, the guesser defaulting to
+ * {@link FrequencyGuesser}.
+ *
+ * @author Ritwik Banerjee
+ */
+public class SelfPlaySimulation {
+
+    private static final int WORDS_PER_TASK = 2048;
+    private static final int MAX_TURNS      = 256; // stops a guesser that keeps repeating itself from playing forever
+
+    private final Dictionary         dictionary;
+    private final Supplier<Guesser> guessers;   // makes one guesser for every range of words played
+
+    /**
+     * @param dictionary the words to play
+     * @param guessers   makes the guessers that play the games
+     */
+    public SelfPlaySimulation(Dictionary dictionary, Supplier<Guesser> guessers) {
+        this.dictionary = dictionary;
+        this.guessers = guessers;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Dictionary        dictionary = Dictionary.getDictionary();
+        Supplier<Guesser> guessers;
+        if (args.length > 0 && args[0].equals("candidates")) {
+            PositionalIndex                  index    = new PositionalIndex(dictionary);
+            ConcurrentMap<String, Character> openings = new ConcurrentHashMap<>();
+            guessers = () -> new CandidateSolver(index, openings);
+        } else {
+            guessers = FrequencyGuesser::new;
+        }
+        SelfPlaySimulation simulation = new SelfPlaySimulation(dictionary, guessers);
+        long               start      = System.nanoTime();
+        SimulationResult   result     = simulation.run(ForkJoinPool.commonPool());
+        long               elapsed    = System.nanoTime() - start;
+        result.print(System.out);
+        System.out.println(String.format("Played %d games in %.1f ms.", result.getTotalGames(), elapsed / 1e6));
+    }
+
+    /**
+     * Plays every word in the dictionary.
+     *
+     * @param pool the pool in which the games are played
+     * @return the tallies of all the games
+     */
+    public SimulationResult run(ForkJoinPool pool) {
+        return pool.invoke(new PlayRange(0, dictionary.size()));
+    }
+
+    /**
+     * Plays a single game.
+     *
+     * @param engine  the engine with which to play, already reset to the game
+     * @param guesser the guesser making the guesses
+     * @return the number of guesses made
+     */
+    static int play(HangmanEngine engine, Guesser guesser) {
+        GameData gamedata = engine.getGameData();
+        guesser.newGame(gamedata);
+        int turns = 0;
+        while (!engine.isOver() && turns < MAX_TURNS) {
+            engine.guess(guesser.nextGuess(gamedata));
+            turns++;
+        }
+        return turns;
+    }
+
+    private final class PlayRange extends RecursiveTask<SimulationResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from; // the first word in the range
+        private final int to;   // one past the last word in the range
+
+        PlayRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationResult compute() {
+            if (to - from > WORDS_PER_TASK) {
+                int       middle = (from + to) >>> 1;
+                PlayRange left   = new PlayRange(from, middle);
+                left.fork();
+                SimulationResult right = new PlayRange(middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            SimulationResult result  = new SimulationResult(dictionary.maxLength());
+            Guesser          guesser = guessers.get();
+            HangmanEngine    engine  = null;
+            for (int i = from; i < to; i++) {
+                GameData gamedata = new GameData(dictionary.wordAt(i)).setWordSequence(i, 0L, i);
+                if (engine == null)
+                    engine = new HangmanEngine(gamedata);
+                else
+                    engine.reset(gamedata);
+                int guessed = play(engine, guesser);
+                result.record(dictionary.lengthOf(i), engine.isWon(), guessed);
+            }
+            return result;
+        }
+    }
+}
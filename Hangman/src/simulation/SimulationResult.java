@@ -0,0 +1,95 @@
+package simulation;
+
+import java.io.PrintStream;
+
+/**
+ * Tallies of games played in a simulation, broken down by the length of the target word. Each worker in a simulation
+ * fills in its own result, and the results are merged once all the workers are done, so nothing is shared while games
+ * are being played.
+ *
+ * @author Ritwik Banerjee
+ */
+public class SimulationResult {
+
+    private final long[] games;   // games[n] is the number of games played with an n-letter target word
+    private final long[] wins;    // wins[n] is how many of those were won
+    private final long[] guesses; // guesses[n] is the total number of guesses made in those games
+
+    public SimulationResult(int maxLength) {
+        this.games = new long[maxLength + 1];
+        this.wins = new long[maxLength + 1];
+        this.guesses = new long[maxLength + 1];
+    }
+
+    /**
+     * Records one game.
+     *
+     * @param length  the length of the target word
+     * @param won     whether the game was won
+     * @param guessed how many guesses were made in the game
+     */
+    public void record(int length, boolean won, int guessed) {
+        games[length]++;
+        guesses[length] += guessed;
+        if (won)
+            wins[length]++;
+    }
+
+    /**
+     * Adds the tallies of another result into this one.
+     *
+     * @param other a result for words no longer than the ones in this result
+     * @return this result
+     */
+    public SimulationResult merge(SimulationResult other) {
+        for (int n = 0; n < other.games.length; n++) {
+            games[n] += other.games[n];
+            wins[n] += other.wins[n];
+            guesses[n] += other.guesses[n];
+        }
+        return this;
+    }
+
+    public int maxLength() {
+        return games.length - 1;
+    }
+
+    public long getGames(int length) {
+        return games[length];
+    }
+
+    public long getWins(int length) {
+        return wins[length];
+    }
+
+    public long getGuesses(int length) {
+        return guesses[length];
+    }
+
+    public long getTotalGames() {
+        long total = 0;
+        for (long n : games)
+            total += n;
+        return total;
+    }
+
+    public long getTotalWins() {
+        long total = 0;
+        for (long n : wins)
+            total += n;
+        return total;
+    }
+
+    /** Prints the win rate and the average number of guesses for every word length. */
+    public void print(PrintStream out) {
+        out.println(String.format("%6s %10s %10s %9s %12s", "length", "games", "wins", "win rate", "avg guesses"));
+        for (int n = 0; n < games.length; n++) {
+            if (games[n] == 0)
+                continue;
+            out.println(String.format("%6d %10d %10d %8.2f%% %12.2f", n, games[n], wins[n], 100.0 * wins[n] / games[n],
+                                      (double) guesses[n] / games[n]));
+        }
+        long total = getTotalGames();
+        out.println(String.format("%6s %10d %10d %8.2f%%", "all", total, getTotalWins(), 100.0 * getTotalWins() / total));
+    }
+}
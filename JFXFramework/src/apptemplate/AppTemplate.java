@@ -36,6 +36,15 @@ public abstract class AppTemplate extends Application {
         return dataComponent;
     }
 
+    /**
+     * Replaces the application's data, as when work is loaded into a fresh data component.
+     *
+     * @param dataComponent the data from here on
+     */
+    public void setDataComponent(AppDataComponent dataComponent) {
+        this.dataComponent = dataComponent;
+    }
+
     public AppFileComponent getFileComponent() {
         return fileComponent;
     }
@@ -67,10 +76,10 @@ public abstract class AppTemplate extends Application {
                 fileComponent = builder.buildFileComponent();
                 dataComponent = builder.buildDataComponent();
                 gui = (propertyManager.hasProperty(APP_WINDOW_WIDTH) && propertyManager.hasProperty(APP_WINDOW_HEIGHT))
-                      ? new AppGUI(primaryStage, propertyManager.getPropertyValue(APP_TITLE.toString()), this,
-                                   Integer.parseInt(propertyManager.getPropertyValue(APP_WINDOW_WIDTH)),
-                                   Integer.parseInt(propertyManager.getPropertyValue(APP_WINDOW_HEIGHT)))
-                      : new AppGUI(primaryStage, propertyManager.getPropertyValue(APP_TITLE.toString()), this);
+                      ? new AppGUI(primaryStage, propertyManager.getPropertyValue(APP_TITLE), this,
+                                   propertyManager.getIntValue(APP_WINDOW_WIDTH),
+                                   propertyManager.getIntValue(APP_WINDOW_HEIGHT))
+                      : new AppGUI(primaryStage, propertyManager.getPropertyValue(APP_TITLE), this);
                 workspaceComponent = builder.buildWorkspaceComponent();
                 initStylesheet();
                 gui.initStyle();
@@ -2,6 +2,7 @@ package components;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.function.DoubleConsumer;
 
 /**
  * This interface provides the structure for file components in
@@ -18,5 +19,18 @@ public interface AppFileComponent {
 
     void loadData(AppDataComponent data, Path filePath) throws IOException;
 
+    /**
+     * Loads data as {@link #loadData(AppDataComponent, Path)} does, reporting how far along it is as it goes. This is
+     * meant for loading off the UI thread, so a load may also be abandoned by interrupting the thread doing it.
+     * Implementations that can tell how far along they are should override this; by default, the load is reported as
+     * done once it is.
+     *
+     * @param progress told the fraction of the load done so far, from 0 to 1
+     */
+    default void loadData(AppDataComponent data, Path filePath, DoubleConsumer progress) throws IOException {
+        loadData(data, filePath);
+        progress.accept(1);
+    }
+
     void exportData(AppDataComponent data, Path filePath) throws IOException;
 }
@@ -1,6 +1,7 @@
 package controller;
 
 import apptemplate.AppTemplate;
+import components.AppDataComponent;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
@@ -30,6 +31,8 @@ public class AppFileController implements FileController {
     public SimpleBooleanProperty saved;           // whether or not changes have been saved
     public File                  currentWorkFile; // the file on which currently work is being done
 
+    private LoadTask<AppDataComponent> loading;   // the work being loaded in the background, if any is
+
     /**
      * Constructor to just store the reference to the application.
      *
@@ -100,9 +103,67 @@ public class AppFileController implements FileController {
         }
     }
 
+    /**
+     * Loads work from a file the user picks. If work is already being edited, it will prompt the user to save it
+     * first. The file is read into fresh data on a background thread, with its progress shown in the toolbar, and the
+     * loaded data takes the place of the current data in one step once it is all read. Asking to load again while a
+     * load is under way cancels that load instead.
+     */
     @Override
     public void handleLoadRequest() {
+        AppMessageDialogSingleton messageDialog   = AppMessageDialogSingleton.getSingleton();
+        PropertyManager           propertyManager = PropertyManager.getManager();
+        if (loading != null) {
+            loading.cancel();
+            return;
+        }
+        try {
+            if (!saved.getValue() && !promptToSave())
+                return;
+
+            FileChooser fileChooser = new FileChooser();
+            URL         workDirURL  = AppTemplate.class.getClassLoader().getResource(APP_WORKDIR_PATH.getParameter());
+            if (workDirURL == null)
+                throw new FileNotFoundException("Work folder not found under resources.");
+
+            fileChooser.setInitialDirectory(new File(workDirURL.getFile()));
+            fileChooser.setTitle(propertyManager.getPropertyValue(LOAD_WORK_TITLE));
+            fileChooser.getExtensionFilters().addAll(new ExtensionFilter(propertyManager.getPropertyValue(WORK_FILE_EXT_DESC),
+                                                                         propertyManager.getPropertyValue(WORK_FILE_EXT)));
+            File selectedFile = fileChooser.showOpenDialog(appTemplate.getGUI().getWindow());
+            if (selectedFile == null)
+                return;
+
+            LoadTask<AppDataComponent> task = new LoadTask<>(appTemplate.getFileComponent(),
+                                                             () -> appTemplate.makeAppBuilderHook().buildDataComponent(),
+                                                             selectedFile.toPath());
+            task.setOnSucceeded(event -> {
+                finishLoading();
+                appTemplate.setDataComponent(task.getValue());
+                appTemplate.getWorkspaceComponent().reloadWorkspace();
+                ensureActivatedWorkspace();
+                currentWorkFile = selectedFile;
+                saved.set(true);
+                messageDialog.show(propertyManager.getPropertyValue(LOAD_COMPLETED_TITLE),
+                                   propertyManager.getPropertyValue(LOAD_COMPLETED_MESSAGE));
+            });
+            task.setOnFailed(event -> {
+                finishLoading();
+                messageDialog.show(propertyManager.getPropertyValue(LOAD_ERROR_TITLE),
+                                   propertyManager.getPropertyValue(LOAD_ERROR_MESSAGE));
+            });
+            task.setOnCancelled(event -> finishLoading());
+            loading = task;
+            appTemplate.getGUI().showProgress(task);
+            task.start();
+        } catch (IOException ioe) {
+            messageDialog.show(propertyManager.getPropertyValue(LOAD_ERROR_TITLE), propertyManager.getPropertyValue(LOAD_ERROR_MESSAGE));
+        }
+    }
 
+    private void finishLoading() {
+        loading = null;
+        appTemplate.getGUI().hideProgress();
     }
     
     /**
@@ -113,8 +174,8 @@ public class AppFileController implements FileController {
      * @throws IOException
      */
     private void saveWork(File selectedFile) throws IOException {
-        appTemplate.getFileComponent()
-                   .saveData(appTemplate.getDataComponent(), Paths.get(selectedFile.getAbsolutePath()));
+        AutosaveService.writeAtomically(appTemplate.getFileComponent(), appTemplate.getDataComponent(),
+                                        Paths.get(selectedFile.getAbsolutePath()));
 
         currentWorkFile = selectedFile;
         saved.set(true);
@@ -0,0 +1,144 @@
+package controller;
+
+import components.AppDataComponent;
+import components.AppFileComponent;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Saves work in the background as it changes, so that saving never holds up the user interface. Each change is
+ * submitted as a snapshot of the data, which must not change after it is submitted. Snapshots are written one at a time
+ * on a single background thread, and if several are submitted for the same file while a save is under way, only the
+ * latest is written once it is done. Snapshots for different files never replace one another, so work on one file
+ * need not wait for the saves of another to finish. Every save, in the background or not, goes through {@link #writeAtomically}, so a crash part way
+ * through a save leaves the previous save intact rather than half a file.
+ *
+ * @author Ritwik Banerjee
+ */
+public class AutosaveService implements AutoCloseable {
+
+    private final AppFileComponent                      fileComponent;
+    private final ExecutorService                       writer;  // writes the snapshots, one at a time
+    private final ConcurrentMap<Path, AppDataComponent> pending; // the latest snapshot for each file, not yet written
+    private volatile IOException                        failure; // the error from the most recent save, if it failed
+
+    /**
+     * @param fileComponent the file component with which to write the snapshots
+     */
+    public AutosaveService(AppFileComponent fileComponent) {
+        this.fileComponent = fileComponent;
+        this.pending = new ConcurrentHashMap<>();
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves a snapshot in the background, replacing any snapshot for the same file that has been submitted but not yet
+     * written.
+     *
+     * @param snapshot the data to save, which must not be changed from here on
+     * @param target   the file to save it to
+     */
+    public void submit(AppDataComponent snapshot, Path target) {
+        if (pending.put(target, snapshot) == null)
+            writer.execute(() -> writeLatest(target));
+    }
+
+    /**
+     * Waits until every snapshot submitted so far has been written.
+     *
+     * @throws IOException if the most recent save failed
+     */
+    public void flush() throws IOException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the autosave.", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /** @return the error from the most recent save, or {@code null} if it succeeded */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /** Writes out any snapshot still pending, and stops the service. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    private void writeLatest(Path target) {
+        AppDataComponent latest = pending.remove(target);
+        if (latest == null)
+            return;
+        try {
+            writeAtomically(fileComponent, latest, target);
+            failure = null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            failure = e;
+        }
+    }
+
+    /**
+     * Saves data so that the target file always holds either the previous save or the new one in full. The data is
+     * written to a temporary file next to the target and forced to disk, then moved over the target in a single
+     * step, and the move itself is forced to disk where the platform allows.
+     *
+     * @param fileComponent the file component with which to write the data
+     * @param data          the data to save
+     * @param target        the file to save it to
+     * @throws IOException if the data could not be saved, in which case the target is left as it was
+     */
+    public static void writeAtomically(AppFileComponent fileComponent, AppDataComponent data, Path target)
+            throws IOException {
+        Path   absolute  = target.toAbsolutePath();
+        Path   directory = absolute.getParent();
+        String name      = absolute.getFileName().toString();
+        int    dot       = name.lastIndexOf('.');
+        // the temporary file keeps the target's extension, since file components may go by it to pick a format
+        Path temporary = Files.createTempFile(directory, "." + name + ".", dot >= 0 ? name.substring(dot) : null);
+        try {
+            fileComponent.saveData(data, temporary);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true); // makes the rename itself durable
+        } catch (IOException e) {
+            // not every platform can open a directory; the data itself is already on disk
+        }
+    }
+}
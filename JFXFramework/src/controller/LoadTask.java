@@ -0,0 +1,65 @@
+package controller;
+
+import components.AppDataComponent;
+import components.AppFileComponent;
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Loads a file into a fresh data component off the JavaFX application thread, so that loading a large file never
+ * freezes the window. The data is loaded into a component that nothing else can see until the load is done, and is
+ * handed over as the task's value, so the application can install it in a single update on the application thread
+ * once the task succeeds. The task reports its progress as the file component reports it, and cancelling the task
+ * abandons the load part way.
+ *
+ * @param <T> the type of data component loaded
+ * @author Ritwik Banerjee
+ */
+public class LoadTask<T extends AppDataComponent> extends Task<T> {
+
+    private final AppFileComponent fileComponent;
+    private final Callable<T>      dataFactory;
+    private final Path             from;
+
+    /**
+     * @param fileComponent the file component with which to load the file
+     * @param dataFactory   makes the empty data component to load into; called on the loading thread
+     * @param from          the file to load
+     */
+    public LoadTask(AppFileComponent fileComponent, Callable<T> dataFactory, Path from) {
+        this.fileComponent = fileComponent;
+        this.dataFactory = dataFactory;
+        this.from = from;
+    }
+
+    public Path getFile() {
+        return from;
+    }
+
+    /**
+     * Starts the load on a new background thread.
+     *
+     * @return this task
+     */
+    public LoadTask<T> start() {
+        Thread thread = new Thread(this, "load " + from.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    @Override
+    protected T call() throws Exception {
+        updateProgress(-1, 1); // indeterminate until the file component says otherwise
+        T data = dataFactory.call();
+        fileComponent.loadData(data, from, done -> {
+            if (isCancelled())
+                throw new CancellationException();
+            updateProgress(done, 1);
+        });
+        return data;
+    }
+}
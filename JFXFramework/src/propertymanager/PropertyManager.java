@@ -1,16 +1,22 @@
 package propertymanager;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
 import xmlutils.InvalidXMLFileFormatException;
 import xmlutils.XMLUtilities;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.*;
 
 /**
+ * Holds the properties loaded from the application's property files. Properties can be looked up by name, or, far more
+ * cheaply, by an enum constant named after the property. Lookups by enum constant go through a table for the enum's
+ * class, holding the value of every constant at its ordinal, so that each lookup is an array access rather than a
+ * string hash and map lookup. Values read as numbers, flags or option lists are parsed once and kept in the table as
+ * well. The tables are rebuilt whenever a property is loaded or added.
+ *
  * @author Richard McKenna, Ritwik Banerjee
  */
 public class PropertyManager {
@@ -21,6 +27,8 @@ public class PropertyManager {
 
     private Map<String, String>       properties;
     private Map<String, List<String>> propertyOptions;
+    private volatile int              version;    // changes whenever the properties do, making every table stale
+    private volatile EnumTable[]      enumTables; // one for each enum whose constants have been looked up, copied on write
 
     // Constants critical to the loading of elements and their attributes from the XML files
     public static final String PROPERTY_ELEMENT              = "property";
@@ -34,9 +42,54 @@ public class PropertyManager {
     // Location of the properties resources, relative to the root resource folder for the application
     public static final String PROPERTIES_RESOURCE_RELATIVE_PATH = "properties";
 
+    /**
+     * The values of the properties named by the constants of one enum, indexed by ordinal. A table is rebuilt in full
+     * when it is found to be stale, and the new arrays are published in one write, so a reader never sees a mix.
+     */
+    private final class EnumTable {
+        private final Class<?>    type;
+        private final Enum<?>[]   constants;
+        private Resolved          resolved;  // immutable but for its parse cache, so it is safely shared as is
+
+        private EnumTable(Class<?> type) {
+            this.type = type;
+            // CONSTANTS WITH BODIES ARE OF A SUBCLASS OF THE ENUM, WHICH GETS A TABLE OF ITS OWN
+            this.constants = (Enum<?>[]) (type.isEnum() ? type : type.getSuperclass()).getEnumConstants();
+        }
+
+        private Resolved resolved() {
+            Resolved current = resolved;
+            if (current == null || current.version != version) {
+                current = new Resolved(version, constants);
+                resolved = current;
+            }
+            return current;
+        }
+    }
+
+    private final class Resolved {
+        private final int            version;
+        private final String[]       values;
+        private final Object[]       parsed;  // each value parsed as an Integer or Boolean, once it has been asked for
+        private final List<String>[] options;
+
+        @SuppressWarnings("unchecked")
+        private Resolved(int version, Enum<?>[] constants) {
+            this.version = version;
+            this.values = new String[constants.length];
+            this.parsed = new Object[constants.length];
+            this.options = (List<String>[]) new List<?>[constants.length];
+            for (Enum<?> constant : constants) {
+                values[constant.ordinal()] = properties.get(constant.toString());
+                options[constant.ordinal()] = propertyOptions.get(constant.toString());
+            }
+        }
+    }
+
     private PropertyManager() {
         properties = new HashMap<>();
         propertyOptions = new HashMap<>();
+        enumTables = new EnumTable[0];
     }
 
     public static PropertyManager getManager() {
@@ -48,6 +101,7 @@ public class PropertyManager {
     @SuppressWarnings("unused")
     public void addProperty(String property, String value) {
         properties.put(property, value);
+        version++;
     }
 
     public String getPropertyValue(String property) {
@@ -58,6 +112,81 @@ public class PropertyManager {
         return properties.get(property.toString());
     }
 
+    /**
+     * Looks up the property named by an enum constant, without hashing its name.
+     *
+     * @param property the enum constant named after the property
+     * @return the value of the property, or {@code null} if there is no such property
+     */
+    public String getPropertyValue(Enum<?> property) {
+        return resolve(property).values[property.ordinal()];
+    }
+
+    /**
+     * @param property the enum constant named after the property
+     * @return the value of the property as an integer, parsed the first time it is asked for
+     * @throws NoSuchElementException if there is no such property
+     * @throws NumberFormatException  if the value is not an integer
+     */
+    public int getIntValue(Enum<?> property) {
+        Resolved resolved = resolve(property);
+        Object   parsed   = resolved.parsed[property.ordinal()];
+        if (!(parsed instanceof Integer))
+            resolved.parsed[property.ordinal()] = parsed = Integer.valueOf(valueOf(resolved, property).trim());
+        return (Integer) parsed;
+    }
+
+    /**
+     * @param property the enum constant named after the property
+     * @return the value of the property as a flag, parsed the first time it is asked for
+     * @throws NoSuchElementException if there is no such property
+     */
+    public boolean getBooleanValue(Enum<?> property) {
+        Resolved resolved = resolve(property);
+        Object   parsed   = resolved.parsed[property.ordinal()];
+        if (!(parsed instanceof Boolean))
+            resolved.parsed[property.ordinal()] = parsed = Boolean.valueOf(valueOf(resolved, property).trim());
+        return (Boolean) parsed;
+    }
+
+    /**
+     * @param property the enum constant named after the property
+     * @return the options listed for the property, or {@code null} if it has none
+     * @throws NoSuchElementException if there is no such property
+     */
+    public List<String> getPropertyOptions(Enum<?> property) {
+        Resolved resolved = resolve(property);
+        valueOf(resolved, property);
+        return resolved.options[property.ordinal()];
+    }
+
+    private Resolved resolve(Enum<?> property) {
+        Class<?> type = property.getClass();
+        for (EnumTable table : enumTables) // an application only ever has a handful of property enums
+            if (table.type == type)
+                return table.resolved();
+        return addEnumTable(type).resolved();
+    }
+
+    private synchronized EnumTable addEnumTable(Class<?> type) {
+        EnumTable[] tables = enumTables;
+        for (EnumTable table : tables)
+            if (table.type == type)
+                return table;
+        EnumTable table = new EnumTable(type);
+        tables = Arrays.copyOf(tables, tables.length + 1);
+        tables[tables.length - 1] = table;
+        enumTables = tables;
+        return table;
+    }
+
+    private static String valueOf(Resolved resolved, Enum<?> property) {
+        String value = resolved.values[property.ordinal()];
+        if (value == null)
+            throw new NoSuchElementException(String.format("Property \"%s\" does not exist.", property));
+        return value;
+    }
+
     @SuppressWarnings("unused")
     public void addPropertyOption(String property, String option) {
         if (properties.get(property) == null)
@@ -67,6 +196,7 @@ public class PropertyManager {
             propertyoptionslist = new ArrayList<>();
         propertyoptionslist.add(option);
         propertyOptions.put(property, propertyoptionslist);
+        version++;
     }
     
     @SuppressWarnings("unused")
@@ -80,36 +210,61 @@ public class PropertyManager {
         return properties.get(property.toString()) != null;
     }
     
-    public void loadProperties(Class klass, String xmlfilename, String schemafilename) throws InvalidXMLFileFormatException {
-        URL             xmlFileResource    = klass.getClassLoader().getResource(PROPERTIES_RESOURCE_RELATIVE_PATH + File.separator + xmlfilename);
-        URL             schemaFileResource = klass.getClassLoader().getResource(PROPERTIES_RESOURCE_RELATIVE_PATH + File.separator + schemafilename);
-        Document        document           = xmlUtilities.loadXMLDocument(xmlFileResource, schemaFileResource);
-        Node            propertyListNode   = xmlUtilities.getNodeWithName(document, PROPERTY_LIST_ELEMENT);
-        ArrayList<Node> propNodes          = xmlUtilities.getChildNodesWithName(propertyListNode, PROPERTY_ELEMENT);
-        for (Node n : propNodes) {
-            NamedNodeMap attributes = n.getAttributes();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                String attName  = attributes.getNamedItem(NAME_ATTRIBUTE).getTextContent();
-                String attValue = attributes.getNamedItem(VALUE_ATTRIBUTE).getTextContent();
-                properties.put(attName, attValue);
-            }
+    /**
+     * Loads the properties in a file, after validating it against a schema. The properties loaded are also kept in a
+     * {@link PropertySnapshot}, and as long as neither the file nor the schema changes, later calls load the snapshot
+     * instead of parsing and validating the file all over again. When the file is parsed, it is validated and read in
+     * a streaming pass each, with no document tree built in between.
+     *
+     * @param klass          the class whose class loader finds the files
+     * @param xmlfilename    the name of the properties file, in the properties resource folder
+     * @param schemafilename the name of the schema, in the properties resource folder
+     * @throws InvalidXMLFileFormatException if the file cannot be read, or does not conform to the schema
+     */
+    public void loadProperties(Class<?> klass, String xmlfilename, String schemafilename) throws InvalidXMLFileFormatException {
+        URL xmlFileResource    = klass.getClassLoader().getResource(PROPERTIES_RESOURCE_RELATIVE_PATH + File.separator + xmlfilename);
+        URL schemaFileResource = klass.getClassLoader().getResource(PROPERTIES_RESOURCE_RELATIVE_PATH + File.separator + schemafilename);
+        if (xmlFileResource == null || schemaFileResource == null)
+            throw new InvalidXMLFileFormatException(xmlfilename, schemafilename);
+
+        byte[] sourceHash;
+        try {
+            sourceHash = PropertySnapshot.hash(PropertySnapshot.contentsOf(xmlFileResource),
+                                               PropertySnapshot.contentsOf(schemaFileResource));
+        } catch (IOException e) {
+            throw new InvalidXMLFileFormatException(xmlFileResource.getFile(), schemaFileResource.getFile());
         }
-        
-        // AND THE PROPERTIES FROM OPTION LISTS
-        Node propertyOptionsListNode = xmlUtilities.getNodeWithName(document, PROPERTY_OPTIONS_LIST_ELEMENT);
-        if (propertyOptionsListNode != null) {
-            ArrayList<Node> propertyOptionsNodes = xmlUtilities.getChildNodesWithName(propertyOptionsListNode, PROPERTY_OPTIONS_ELEMENT);
-            for (Node n : propertyOptionsNodes) {
-                NamedNodeMap      attributes = n.getAttributes();
-                String            name       = attributes.getNamedItem(NAME_ATTRIBUTE).getNodeValue();
-                ArrayList<String> options    = new ArrayList<>();
-                propertyOptions.put(name, options);
-                ArrayList<Node> optionsNodes = xmlUtilities.getChildNodesWithName(n, OPTION_ELEMENT);
-                for (Node oNode : optionsNodes) {
-                    String option = oNode.getTextContent();
-                    options.add(option);
-                }
+        Map<String, String>       loadedProperties = new HashMap<>();
+        Map<String, List<String>> loadedOptions    = new HashMap<>();
+        try {
+            if (PropertySnapshot.read(xmlFileResource, sourceHash, loadedProperties, loadedOptions)) {
+                properties.putAll(loadedProperties);
+                propertyOptions.putAll(loadedOptions);
+                version++;
+                return;
             }
+        } catch (IOException e) {
+            // AN UNREADABLE SNAPSHOT IS SIMPLY IGNORED, AND REPLACED BELOW
+            loadedProperties.clear();
+            loadedOptions.clear();
+        }
+
+        // THE FILE IS VALIDATED AND THEN READ IN TWO STREAMING PASSES, WITHOUT BUILDING A DOCUMENT TREE
+        if (!xmlUtilities.validateXML(xmlFileResource, schemaFileResource))
+            throw new InvalidXMLFileFormatException(xmlFileResource.getFile(), schemaFileResource.getFile());
+        try (InputStream in = xmlFileResource.openStream()) {
+            PropertyStreamLoader.load(in, loadedProperties, loadedOptions);
+        } catch (IOException | XMLStreamException e) {
+            throw new InvalidXMLFileFormatException(xmlFileResource.getFile(), schemaFileResource.getFile());
+        }
+        properties.putAll(loadedProperties);
+        propertyOptions.putAll(loadedOptions);
+        version++;
+
+        try {
+            PropertySnapshot.write(xmlFileResource, sourceHash, loadedProperties, loadedOptions);
+        } catch (IOException e) {
+            // WITHOUT A SNAPSHOT, THE NEXT LAUNCH JUST LOADS THE FILE AGAIN
         }
     }
 }
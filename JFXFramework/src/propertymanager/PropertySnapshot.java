@@ -0,0 +1,274 @@
+package propertymanager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary copy of the properties loaded from a properties file, so that later launches can skip parsing and
+ * validating the file. A snapshot is named by a hash of the bytes of both the properties file and the schema it was
+ * validated against, so a snapshot is only ever used for exactly the sources it was made from, and a change to either
+ * one simply leads to a new snapshot, which replaces the one made from the same properties file before the change.
+ * <p>
+ * Snapshots are kept in the folder named by the {@value #SNAPSHOT_DIR_PROPERTY} system property, or in a cache folder
+ * under the user's home folder if it is not set. Since a snapshot is trusted in place of the file it was made from,
+ * the folder is only used if it belongs to the user and, where the file system has POSIX permissions, no one else can
+ * write to it; otherwise, the properties are simply loaded from the file every time. A snapshot is laid out as:
+ * <pre>
+ *     int    magic number, "PSNP"
+ *     int    format version
+ *     byte[] the hash of the sources, repeated as a check on the file name
+ *     int    number of properties, followed by each name and value
+ *     int    number of option lists, followed by each name, its number of options, and the options
+ * </pre>
+ * where each string is an int length followed by that many bytes of UTF-8.
+ *
+ * @author Ritwik Banerjee
+ */
+final class PropertySnapshot {
+
+    static final String SNAPSHOT_DIR_PROPERTY = "propertymanager.snapshot.dir";
+
+    private static final int    MAGIC            = 0x50534E50; // "PSNP"
+    private static final int    FORMAT_VERSION   = 1;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String EXTENSION        = ".snapshot";
+    private static final int    MAX_STRING_BYTES = 1 << 24; // any string or list longer means the snapshot is corrupt
+    private static final int    SOURCE_ID_BYTES  = 8;       // of the hash of the properties file's location
+
+    private static final Set<PosixFilePermission> WRITABLE_BY_OTHERS =
+            EnumSet.of(PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+    private PropertySnapshot() { }
+
+    /** @return the folder in which snapshots are kept */
+    static Path directory() {
+        String directory = System.getProperty(SNAPSHOT_DIR_PROPERTY);
+        return directory != null ? Paths.get(directory)
+                                 : Paths.get(System.getProperty("user.home"), ".cache", "propertymanager");
+    }
+
+    /**
+     * @param directory the folder in which snapshots are kept
+     * @return {@code true} if the folder exists, belongs to the user running the application, and cannot be written to
+     * by anyone else, so that no snapshot in it can have been planted there by another user
+     */
+    static boolean isTrusted(Path directory) {
+        try {
+            if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS))
+                return false;
+            UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+                                            .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!user.equals(Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS)))
+                return false;
+            PosixFileAttributeView posix = Files.getFileAttributeView(directory, PosixFileAttributeView.class,
+                                                                      LinkOption.NOFOLLOW_LINKS);
+            return posix == null || Collections.disjoint(posix.readAttributes().permissions(), WRITABLE_BY_OTHERS);
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param sources the contents of the properties file and of its schema
+     * @return the hash that identifies the snapshot of those sources
+     */
+    static byte[] hash(byte[]... sources) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            for (byte[] source : sources) {
+                // each source is preceded by its length, so that no two sets of sources run together the same way
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(source.length).array());
+                digest.update(source);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is required of every Java platform.", e);
+        }
+    }
+
+    /**
+     * Reads the snapshot of the given sources, if there is one.
+     *
+     * @param source          the location of the properties file
+     * @param hash            the hash of the sources
+     * @param properties      receives the properties
+     * @param propertyOptions receives the option lists
+     * @return {@code true} if the snapshot was read, and {@code false} if there is none, or the snapshot folder is not
+     * to be trusted
+     * @throws IOException if there is a snapshot, but it cannot be read in full
+     */
+    static boolean read(URL source, byte[] hash, Map<String, String> properties,
+                        Map<String, List<String>> propertyOptions) throws IOException {
+        Path directory = directory();
+        if (!isTrusted(directory))
+            return false;
+        Path file = directory.resolve(prefixOf(source) + hex(hash) + EXTENSION);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                throw new IOException("Not a property snapshot of this version.");
+            byte[] recorded = new byte[hash.length];
+            in.readFully(recorded);
+            if (!Arrays.equals(recorded, hash))
+                throw new IOException("The property snapshot is not of these sources.");
+            for (int n = in.readInt(); n > 0; n--)
+                properties.put(readString(in), readString(in));
+            for (int n = in.readInt(); n > 0; n--) {
+                String       name    = readString(in);
+                int          count   = in.readInt();
+                if (count < 0 || count > MAX_STRING_BYTES)
+                    throw new IOException("The property snapshot is corrupt.");
+                List<String> options = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    options.add(readString(in));
+                propertyOptions.put(name, options);
+            }
+            if (in.read() >= 0)
+                throw new IOException("The property snapshot runs on past its end.");
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot of the given sources. The snapshot is written to a temporary file and moved into place, so
+     * that no other launch ever reads it half-written, and any earlier snapshot of the same properties file is then
+     * deleted. The snapshot folder is created, open to the user alone, if it does not exist yet, and nothing is written
+     * if it does exist but is not to be trusted.
+     *
+     * @param source          the location of the properties file
+     * @param hash            the hash of the sources
+     * @param properties      the properties loaded from them
+     * @param propertyOptions the option lists loaded from them
+     * @throws IOException if the snapshot cannot be written
+     */
+    static void write(URL source, byte[] hash, Map<String, String> properties,
+                      Map<String, List<String>> propertyOptions) throws IOException {
+        Path directory = createDirectory(directory());
+        if (!isTrusted(directory))
+            throw new IOException(String.format("The snapshot folder \"%s\" can be written to by other users.",
+                                                directory));
+        String prefix    = prefixOf(source);
+        Path   target    = directory.resolve(prefix + hex(hash) + EXTENSION);
+        Path   temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.write(hash);
+                out.writeInt(properties.size());
+                for (Map.Entry<String, String> property : properties.entrySet()) {
+                    writeString(out, property.getKey());
+                    writeString(out, property.getValue());
+                }
+                out.writeInt(propertyOptions.size());
+                for (Map.Entry<String, List<String>> options : propertyOptions.entrySet()) {
+                    writeString(out, options.getKey());
+                    out.writeInt(options.getValue().size());
+                    for (String option : options.getValue())
+                        writeString(out, option);
+                }
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        // SNAPSHOTS OF EARLIER VERSIONS OF THE SAME FILE WILL NEVER BE READ AGAIN
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, prefix + "*" + EXTENSION)) {
+            for (Path snapshot : snapshots)
+                if (!snapshot.equals(target))
+                    Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private static Path createDirectory(Path directory) throws IOException {
+        if (Files.exists(directory, LinkOption.NOFOLLOW_LINKS))
+            return directory;
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+            return Files.createDirectories(directory);
+        FileAttribute<Set<PosixFilePermission>> userOnly =
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"));
+        return Files.createDirectories(directory, userOnly);
+    }
+
+    /**
+     * @param url the location of a source
+     * @return the entire contents of the source
+     */
+    static byte[] contentsOf(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            byte[]                buffer   = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+                contents.write(buffer, 0, n);
+            return contents.toByteArray();
+        }
+    }
+
+    /**
+     * @param source the location of a properties file
+     * @return the start of the name of every snapshot of the file, whatever its contents
+     */
+    private static String prefixOf(URL source) {
+        byte[] location = source.toExternalForm().getBytes(StandardCharsets.UTF_8);
+        return hex(Arrays.copyOf(hash(location), SOURCE_ID_BYTES)) + "-";
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+            hex.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES)
+            throw new IOException("The property snapshot is corrupt.");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,111 @@
+package propertymanager;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static propertymanager.PropertyManager.*;
+
+/**
+ * Reads a properties file in a single forward pass with an {@link XMLStreamReader}, without building a document tree.
+ * Since the file is not validated against a schema along the way, its structure is checked as it is read, against the
+ * same structure that the properties schema lays down:
+ * <pre>
+ *     &lt;properties&gt;
+ *         &lt;property_list&gt;
+ *             &lt;property name="..." value="..."/&gt; ...
+ *         &lt;/property_list&gt;
+ *         &lt;property_options_list&gt;                   (optional)
+ *             &lt;property_options name="..."&gt;
+ *                 &lt;option&gt;...&lt;/option&gt; ...
+ *             &lt;/property_options&gt; ...
+ *         &lt;/property_options_list&gt;
+ *     &lt;/properties&gt;
+ * </pre>
+ *
+ * @author Ritwik Banerjee
+ */
+final class PropertyStreamLoader {
+
+    static final String PROPERTIES_ELEMENT = "properties";
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory(); // thread-safe once configured
+
+    private PropertyStreamLoader() { }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Reads the properties and property options in a file.
+     *
+     * @param in              the file's contents
+     * @param properties      receives the properties
+     * @param propertyOptions receives the option lists
+     * @throws XMLStreamException if the file is not well-formed, or not laid out as a properties file
+     */
+    static void load(InputStream in, Map<String, String> properties, Map<String, List<String>> propertyOptions)
+            throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            startOf(reader, PROPERTIES_ELEMENT);
+            startOf(reader, PROPERTY_LIST_ELEMENT);
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                require(reader, PROPERTY_ELEMENT);
+                properties.put(attribute(reader, NAME_ATTRIBUTE), attribute(reader, VALUE_ATTRIBUTE));
+                reader.getElementText(); // the text of a property, if any, is not used
+            }
+
+            if (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                require(reader, PROPERTY_OPTIONS_LIST_ELEMENT);
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    require(reader, PROPERTY_OPTIONS_ELEMENT);
+                    String       name    = attribute(reader, NAME_ATTRIBUTE);
+                    List<String> options = new ArrayList<>();
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        require(reader, OPTION_ELEMENT);
+                        options.add(reader.getElementText());
+                    }
+                    propertyOptions.put(name, options);
+                }
+                reader.nextTag();
+            }
+            if (!reader.isEndElement() || !PROPERTIES_ELEMENT.equals(reader.getLocalName()))
+                throw new XMLStreamException("Expected the end of the properties.", reader.getLocation());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Moves to the next element, which must be the start of the named element. */
+    private static void startOf(XMLStreamReader reader, String element) throws XMLStreamException {
+        if (reader.nextTag() != XMLStreamConstants.START_ELEMENT)
+            throw new XMLStreamException(String.format("Expected <%s>.", element), reader.getLocation());
+        require(reader, element);
+    }
+
+    /** Checks that the reader is at the start of the named element. */
+    private static void require(XMLStreamReader reader, String element) throws XMLStreamException {
+        if (!element.equals(reader.getLocalName()))
+            throw new XMLStreamException(String.format("Expected <%s>, not <%s>.", element, reader.getLocalName()),
+                                         reader.getLocation());
+    }
+
+    private static String attribute(XMLStreamReader reader, String attribute) throws XMLStreamException {
+        String value = reader.getAttributeValue(null, attribute);
+        if (value == null)
+            throw new XMLStreamException(String.format("<%s> has no \"%s\".", reader.getLocalName(), attribute),
+                                         reader.getLocation());
+        return value;
+    }
+}
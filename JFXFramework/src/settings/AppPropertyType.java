@@ -33,23 +33,28 @@ public enum AppPropertyType {
 
     // ERROR MESSAGES
     NEW_ERROR_MESSAGE,
+    LOAD_ERROR_MESSAGE,
     SAVE_ERROR_MESSAGE,
     PROPERTIES_LOAD_ERROR_MESSAGE,
 
     // ERROR TITLES
     NEW_ERROR_TITLE,
+    LOAD_ERROR_TITLE,
     SAVE_ERROR_TITLE,
     PROPERTIES_LOAD_ERROR_TITLE,
 
     // AND VERIFICATION MESSAGES AND TITLES
     NEW_COMPLETED_MESSAGE,
     NEW_COMPLETED_TITLE,
+    LOAD_COMPLETED_MESSAGE,
+    LOAD_COMPLETED_TITLE,
     SAVE_COMPLETED_MESSAGE,
     SAVE_COMPLETED_TITLE,
     SAVE_UNSAVED_WORK_TITLE,
     SAVE_UNSAVED_WORK_MESSAGE,
 
     SAVE_WORK_TITLE,
+    LOAD_WORK_TITLE,
     WORK_FILE_EXT,
     WORK_FILE_EXT_DESC,
     PROPERTIES_
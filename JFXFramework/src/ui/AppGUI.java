@@ -3,9 +3,11 @@ package ui;
 import apptemplate.AppTemplate;
 import components.AppStyleArbiter;
 import controller.FileController;
+import javafx.concurrent.Task;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -47,6 +49,7 @@ public class AppGUI implements AppStyleArbiter {
     protected Button         saveButton;       // button to save progress on application
     protected Button         loadButton;       // button to load a saved game from (json) file
     protected Button         exitButton;       // button to exit application
+    protected ProgressBar    loadProgress;     // shows how far along a background load is, while there is one
     protected String         applicationTitle; // the application title
 
     private int appSpecificWindowWidth;  // optional parameter for window width that can be set by the application
@@ -77,6 +80,8 @@ public class AppGUI implements AppStyleArbiter {
 
     public FlowPane getToolbarPane() { return toolbarPane; }
 
+    public FileController getFileController() { return fileController; }
+
     public BorderPane getAppPane() { return appPane; }
     
     /**
@@ -109,6 +114,7 @@ public class AppGUI implements AppStyleArbiter {
         loadButton = initializeChildButton(toolbarPane, LOAD_ICON.toString(), LOAD_TOOLTIP.toString(), false);
         saveButton = initializeChildButton(toolbarPane, SAVE_ICON.toString(), SAVE_TOOLTIP.toString(), true);
         exitButton = initializeChildButton(toolbarPane, EXIT_ICON.toString(), EXIT_TOOLTIP.toString(), false);
+        loadProgress = new ProgressBar();
     }
 
     private void initializeToolbarHandlers(AppTemplate app) throws InstantiationException {
@@ -142,6 +148,22 @@ public class AppGUI implements AppStyleArbiter {
         exitButton.setOnAction(e -> fileController.handleExitRequest());
     }
 
+    /**
+     * Shows the progress of a background task at the end of the toolbar, until {@link #hideProgress()} is called.
+     *
+     * @param task the task whose progress is to be shown
+     */
+    public void showProgress(Task<?> task) {
+        loadProgress.progressProperty().bind(task.progressProperty());
+        if (!toolbarPane.getChildren().contains(loadProgress))
+            toolbarPane.getChildren().add(loadProgress);
+    }
+
+    public void hideProgress() {
+        loadProgress.progressProperty().unbind();
+        toolbarPane.getChildren().remove(loadProgress);
+    }
+
     public void updateWorkspaceToolbar(boolean savable) {
         saveButton.setDisable(!savable);
         newButton.setDisable(false);
@@ -0,0 +1,175 @@
+package xmlutils;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class keeps every XML schema compiled so far, so that each schema is compiled only once however many documents
+ * are validated against it. Compiling a schema is by far the costliest part of validating a document. Schemas are kept
+ * by their URL, along with a hash of their contents, and a schema whose contents have changed since it was compiled is
+ * compiled again. Only the schema's own file is hashed, not any schema that it includes or imports.
+ * <p>
+ * A compiled {@link Schema} may be shared between threads, but a {@link Validator} or a {@link DocumentBuilder} may
+ * not, so each thread is handed a validator and a document builder of its own, which it reuses from one document to
+ * the next. The document builders validate against the schema as they parse, so a document need only be read once to
+ * be both validated and loaded.
+ *
+ * @author Ritwik Banerjee
+ */
+public final class SchemaCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ConcurrentMap<String, CompiledSchema> SCHEMAS = new ConcurrentHashMap<>();
+
+    // SCHEMA FACTORIES ARE NOT THREAD-SAFE, SO EACH THREAD COMPILES WITH ITS OWN
+    private static final ThreadLocal<SchemaFactory> FACTORIES =
+            ThreadLocal.withInitial(() -> SchemaFactory.newInstance(XMLUtilities.SCHEMA_STANDARD_SPEC_URL));
+
+    // A DOCUMENT BUILDER ONLY REPORTS VALIDATION ERRORS UNLESS TOLD TO STOP AT THEM
+    private static final ErrorHandler STRICT = new ErrorHandler() {
+        @Override
+        public void warning(SAXParseException exception) {}
+
+        @Override
+        public void error(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+    };
+
+    /** A compiled schema, with the hash of the contents it was compiled from. */
+    private static final class CompiledSchema {
+        private final byte[]                       digest;
+        private final Schema                       schema;
+        private final ThreadLocal<Validator>       validators;
+        private final ThreadLocal<DocumentBuilder> builders;
+
+        private CompiledSchema(byte[] digest, Schema schema) {
+            this.digest = digest;
+            this.schema = schema;
+            this.validators = ThreadLocal.withInitial(schema::newValidator);
+            this.builders = new ThreadLocal<>();
+        }
+    }
+
+    private SchemaCache() {}
+
+    /**
+     * Returns the compiled schema at the given URL, compiling it only if it has not been compiled before, or if its
+     * contents have changed since.
+     *
+     * @param schemaURL the location of the schema
+     * @return the compiled schema
+     * @throws IOException  if the schema cannot be read
+     * @throws SAXException if the schema is not a valid schema
+     */
+    public static Schema getSchema(URL schemaURL) throws IOException, SAXException {
+        return lookUp(schemaURL).schema;
+    }
+
+    /**
+     * Returns this thread's validator for the schema at the given URL, reset to its original configuration. The
+     * validator must not be handed to any other thread.
+     *
+     * @param schemaURL the location of the schema
+     * @return a validator for the schema
+     * @throws IOException  if the schema cannot be read
+     * @throws SAXException if the schema is not a valid schema
+     */
+    public static Validator getValidator(URL schemaURL) throws IOException, SAXException {
+        Validator validator = lookUp(schemaURL).validators.get();
+        validator.reset();
+        return validator;
+    }
+
+    /**
+     * Returns this thread's document builder for the schema at the given URL. The builder validates each document
+     * against the schema as it parses it, and throws a {@link SAXException} at the first error, be it in the form of
+     * the document or in its conformance to the schema. The builder must not be handed to any other thread.
+     *
+     * @param schemaURL the location of the schema
+     * @return a validating document builder for the schema
+     * @throws IOException                  if the schema cannot be read
+     * @throws SAXException                 if the schema is not a valid schema
+     * @throws ParserConfigurationException if no document builder can validate against a schema
+     */
+    public static DocumentBuilder getDocumentBuilder(URL schemaURL)
+            throws IOException, SAXException, ParserConfigurationException {
+        CompiledSchema  compiled = lookUp(schemaURL);
+        DocumentBuilder builder  = compiled.builders.get();
+        if (builder == null) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true); // SCHEMA VALIDATION WORKS ON NAMESPACES
+            factory.setSchema(compiled.schema);
+            builder = factory.newDocumentBuilder();
+            compiled.builders.set(builder);
+        } else {
+            builder.reset();
+        }
+        builder.setErrorHandler(STRICT); // RESET CLEARS IT
+        return builder;
+    }
+
+    /** Forgets every schema compiled so far. */
+    public static void clear() {
+        SCHEMAS.clear();
+    }
+
+    private static CompiledSchema lookUp(URL schemaURL) throws IOException, SAXException {
+        String         key      = schemaURL.toExternalForm();
+        byte[]         contents = read(schemaURL);
+        byte[]         digest   = digest(contents);
+        CompiledSchema cached   = SCHEMAS.get(key);
+        if (cached != null && Arrays.equals(cached.digest, digest))
+            return cached;
+
+        // COMPILED OUTSIDE THE MAP, SO THAT ONE SLOW SCHEMA DOES NOT HOLD UP LOOKUPS OF ANY OTHER; IF TWO THREADS
+        // COMPILE THE SAME SCHEMA AT ONCE, THE LATER ONE SIMPLY REPLACES THE EARLIER
+        StreamSource   source   = new StreamSource(new ByteArrayInputStream(contents), key); // KEY RESOLVES INCLUDES
+        CompiledSchema compiled = new CompiledSchema(digest, FACTORIES.get().newSchema(source));
+        SCHEMAS.put(key, compiled);
+        return compiled;
+    }
+
+    private static byte[] read(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            byte[]                buffer   = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+                contents.write(buffer, 0, n);
+            return contents.toByteArray();
+        }
+    }
+
+    private static byte[] digest(byte[] contents) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(contents);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is required of every Java platform.", e);
+        }
+    }
+}
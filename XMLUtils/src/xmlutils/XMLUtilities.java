@@ -6,15 +6,13 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 
@@ -54,23 +52,15 @@ public class XMLUtilities {
     public boolean validateXMLDoc(String xmlDocNameAndPath,
                                   String xmlSchemaNameAndPath) {
         try {
-            // 1. Lookup a factory for the W3C XML Schema language
-            SchemaFactory factory = SchemaFactory.newInstance(SCHEMA_STANDARD_SPEC_URL);
+            // 1. Get this thread's validator for the schema, which is only
+            // compiled the first time it is asked for (see SchemaCache).
+            URL       schemaLocation = new File(xmlSchemaNameAndPath).toURI().toURL();
+            Validator validator      = SchemaCache.getValidator(schemaLocation);
             
-            // 2. Compile the schema. 
-            // Here the schema is loaded from a java.io.File, but you could use 
-            // a java.net.URL or a javax.xml.transform.Source instead.
-            File   schemaLocation = new File(xmlSchemaNameAndPath);
-            String abs_path       = schemaLocation.getAbsolutePath();
-            Schema schema         = factory.newSchema(schemaLocation);
-            
-            // 3. Get a validator from the schema.
-            Validator validator = schema.newValidator();
-            
-            // 4. Parse the document you want to check.
+            // 2. Parse the document you want to check.
             Source source = new StreamSource(xmlDocNameAndPath);
             
-            // 5. Check the document
+            // 3. Check the document
             validator.validate(source);
             return true;
         }
@@ -82,12 +72,9 @@ public class XMLUtilities {
     }
 
     public boolean validateXML(URL datapath, URL schemapath) {
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(SCHEMA_STANDARD_SPEC_URL);
-        try {
-            Schema    schema    = schemaFactory.newSchema(schemapath);
-            Validator validator = schema.newValidator();
-            Source    source    = new StreamSource(datapath.openStream());
-            validator.validate(source);
+        try (InputStream data = datapath.openStream()) {
+            Validator validator = SchemaCache.getValidator(schemapath);
+            validator.validate(new StreamSource(data, datapath.toExternalForm()));
             return true;
         } catch (SAXException | IOException e) {
             return false;
@@ -108,41 +95,35 @@ public class XMLUtilities {
      */
     public Document loadXMLDocument(String xmlFile, String xsdFile)
             throws InvalidXMLFileFormatException {
-        // FIRST VALIDATE
-        boolean isValid = validateXMLDoc(xmlFile, xsdFile);
-        if (!isValid) {
-            throw new InvalidXMLFileFormatException(xmlFile, xsdFile);
-        }
-        
-        // THIS IS JAVA API STUFF
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         try {
-            // FIRST RETRIEVE AND LOAD THE FILE INTO A TREE
-            DocumentBuilder db     = dbf.newDocumentBuilder();
+            // THE DOCUMENT IS VALIDATED AS IT IS LOADED INTO A TREE,
+            // SO IT IS ONLY READ AND PARSED ONCE
+            DocumentBuilder db     = SchemaCache.getDocumentBuilder(new File(xsdFile).toURI().toURL());
             Document        xmlDoc = db.parse(xmlFile);
             xmlDoc.getDocumentElement().normalize();
 
             // LET'S RETURN THE DOC
             return xmlDoc;
         }
-        // THESE ARE XML-RELATED ERRORS THAT COULD HAPPEN DURING
-        // LOADING AND PARSING IF THE XML FILE IS NOT WELL FORMED
-        // OR IS NOW WHERE AND WHAT WE SAY IT IS
-        catch (ParserConfigurationException | SAXException | IOException pce) {
+        // THE FILE IS NOT WELL FORMED, OR DOES NOT CONFORM TO THE SCHEMA
+        catch (SAXException e) {
+            throw new InvalidXMLFileFormatException(xmlFile, xsdFile);
+        }
+        // THE FILE IS NOT WHERE AND WHAT WE SAY IT IS
+        catch (ParserConfigurationException | IOException e) {
             throw new InvalidXMLFileFormatException(xmlFile);
         }
     }
 
     public Document loadXMLDocument(URL xmlFileURL, URL schemaFileURL) throws InvalidXMLFileFormatException {
-        if (!validateXML(xmlFileURL, schemaFileURL))
-            throw new InvalidXMLFileFormatException(xmlFileURL.getFile(), schemaFileURL.getFile());
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        try {
-            DocumentBuilder builder  = documentBuilderFactory.newDocumentBuilder();
-            Document        document = builder.parse(xmlFileURL.openStream());
+        try (InputStream in = xmlFileURL.openStream()) {
+            DocumentBuilder builder  = SchemaCache.getDocumentBuilder(schemaFileURL);
+            Document        document = builder.parse(in, xmlFileURL.toExternalForm());
             document.getDocumentElement().normalize();
             return document;
-        } catch (ParserConfigurationException | IOException | SAXException e) {
+        } catch (SAXException e) {
+            throw new InvalidXMLFileFormatException(xmlFileURL.getFile(), schemaFileURL.getFile());
+        } catch (ParserConfigurationException | IOException e) {
             throw new InvalidXMLFileFormatException(xmlFileURL.getFile());
         }
     }